@@ -0,0 +1,151 @@
+package com.tenniscourts.audit;
+
+import com.tenniscourts.TennisCourtApplication;
+import com.tenniscourts.config.persistence.BaseEntity;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of persisting one new guest when a transaction persists and flushes {@value #FLUSH} of
+ * them on the bundled H2, with the former stamping, which looked the host address up and read
+ * the clock for every entity, against the current one, which takes a single stamp for the
+ * transaction. Both journal the inserts alike, and the setup fails unless the stamping measured
+ * is the one Hibernate calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuditStampingBenchmark {
+
+    private static final int FLUSH = 50;
+
+    @Param({"entity", "transaction"})
+    private String stamp;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private GuestRepository guestRepository;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        ApplicationContextInitializer<ConfigurableApplicationContext> stamping = applicationContext -> {
+            if ("entity".equals(stamp)) {
+                applicationContext.getBeanFactory().addBeanPostProcessor(new EntityStamping(applicationContext.getBeanFactory()));
+            }
+        };
+        context = new SpringApplicationBuilder(TennisCourtApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(stamping)
+                // arguments, as application.properties takes precedence over default properties
+                .run("--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:audit-stamping-" + stamp + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.hibernate.type=warn");
+
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        guestRepository = context.getBean(GuestRepository.class);
+        requireStamping();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLUSH)
+    public List<Guest> persistAndFlush() {
+        return transactionTemplate.execute(status -> guestRepository.saveAll(IntStream.range(0, FLUSH)
+                .mapToObj(i -> Guest.builder().name("Guest " + i).build())
+                .collect(Collectors.toList())));
+    }
+
+    /**
+     * Fails unless the guests of a transaction share their stamp exactly when the transaction
+     * stamping is measured, the former stamping read the clock for each of them.
+     */
+    private void requireStamping() {
+        List<Guest> guests = persistAndFlush();
+        long stamps = guests.stream().map(Guest::getDateCreate).distinct().count();
+        if ((stamps == 1) != "transaction".equals(stamp)) {
+            throw new IllegalStateException(stamps + " distinct stamps for " + FLUSH + " guests with the " + stamp + " stamping.");
+        }
+    }
+
+    /**
+     * Hands Hibernate the former stamping in place of the listener it asks the context for.
+     */
+    private static final class EntityStamping implements BeanPostProcessor {
+        private final BeanFactory beanFactory;
+
+        private EntityStamping(BeanFactory beanFactory) {
+            this.beanFactory = beanFactory;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof CustomAuditEntityListener && !(bean instanceof EntityStampingListener)) {
+                return new EntityStampingListener(beanFactory.getBean(AuditJournal.class));
+            }
+            return bean;
+        }
+    }
+
+    private static final class EntityStampingListener extends CustomAuditEntityListener {
+
+        private EntityStampingListener(AuditJournal auditJournal) {
+            super(Clock.systemDefaultZone(), new AuditContext(), auditJournal);
+        }
+
+        @Override
+        public void prePersist(BaseEntity<? extends Number> baseEntity) {
+            try {
+                baseEntity.setDateUpdate(LocalDateTime.now());
+                if (Objects.isNull(baseEntity.getUserUpdate())) {
+                    baseEntity.setUserUpdate(USER_SYSTEM_ID);
+                }
+                baseEntity.setDateCreate(LocalDateTime.now());
+                if (Objects.isNull(baseEntity.getUserCreate())) {
+                    baseEntity.setUserCreate(USER_SYSTEM_ID);
+                }
+                if (Objects.isNull(baseEntity.getIpNumberCreate())) {
+                    baseEntity.setIpNumberUpdate(InetAddress.getLocalHost().getHostAddress());
+                }
+                if (Objects.isNull(baseEntity.getIpNumberCreate())) {
+                    baseEntity.setIpNumberCreate(InetAddress.getLocalHost().getHostAddress());
+                }
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.tenniscourts.config.persistence;
+
+import com.tenniscourts.TennisCourtApplication;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Rows per second when creating guests and schedules in bulk on the bundled H2.
+ * <p>
+ * The {@code none} mode fetches one sequence value per row with JDBC batching disabled,
+ * which costs the same round trips per row as the former identity columns. The
+ * {@code pooled} mode is the application default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BulkInsertBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"none", "pooled"})
+    private String optimizer;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private GuestRepository guestRepository;
+    private ScheduleRepository scheduleRepository;
+    private TennisCourt tennisCourt;
+    private LocalDateTime nextStart = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        boolean pooled = "pooled".equals(optimizer);
+        context = new SpringApplicationBuilder(TennisCourtApplication.class)
+                .web(WebApplicationType.NONE)
+                // arguments, as application.properties takes precedence over default properties
+                .run("--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:bulk-insert-" + optimizer + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.hibernate.type=warn",
+                        "--spring.jpa.properties.tenniscourts.id.optimizer=" + optimizer,
+                        "--spring.jpa.properties.tenniscourts.id.increment_size=" + (pooled ? BaseEntityIdGenerator.DEFAULT_INCREMENT_SIZE : 1),
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + (pooled ? 50 : 0));
+
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        guestRepository = context.getBean(GuestRepository.class);
+        scheduleRepository = context.getBean(ScheduleRepository.class);
+
+        TennisCourt court = new TennisCourt();
+        court.setName("Benchmark court");
+        tennisCourt = context.getBean(TennisCourtRepository.class).saveAndFlush(court);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Guest> createGuests() {
+        return transactionTemplate.execute(status -> guestRepository.saveAll(IntStream.range(0, ROWS)
+                .mapToObj(i -> Guest.builder().name("Guest " + i).build())
+                .collect(Collectors.toList())));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Schedule> createSchedules() {
+        List<Schedule> schedules = IntStream.range(0, ROWS)
+                .mapToObj(i -> {
+                    nextStart = nextStart.plusHours(1);
+                    return Schedule.builder()
+                            .tennisCourt(tennisCourt)
+                            .startDateTime(nextStart)
+                            .endDateTime(nextStart.plusHours(1))
+                            .build();
+                })
+                .collect(Collectors.toList());
+        return transactionTemplate.execute(status -> scheduleRepository.saveAll(schedules));
+    }
+}
@@ -0,0 +1,99 @@
+package com.tenniscourts.guests;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Latency of a top 10 guest search over a million generated names of three words alternating
+ * consonants and vowels: a two letter prefix, a first word with the start of the second one,
+ * a full name, and full names with one letter of the second word changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GuestSearchIndexBenchmark {
+
+    private static final String CONSONANTS = "bcdfghjklmnprstvwxyz";
+    private static final String VOWELS = "aeiou";
+
+    private static final int QUERIES = 1024;
+    private static final int LIMIT = 10;
+
+    @Param({"1000000"})
+    private int guests;
+
+    private final String[] prefixes = new String[QUERIES];
+    private final String[] fullNames = new String[QUERIES];
+    private final String[] misspelledNames = new String[QUERIES];
+
+    private GuestSearchIndex guestSearchIndex;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        String[] names = new String[guests];
+        Random random = new Random(42);
+        for (int i = 0; i < guests; i++) {
+            names[i] = word(random) + " " + word(random) + " " + word(random);
+        }
+
+        guestSearchIndex = new GuestSearchIndex(null, null);
+        guestSearchIndex.load(LongStream.range(0, guests).mapToObj(id -> new Object[]{id + 1, names[(int) id]}));
+
+        for (int i = 0; i < QUERIES; i++) {
+            String name = names[random.nextInt(guests)];
+            String[] words = name.split(" ");
+            prefixes[i] = words[0] + " " + words[1].substring(0, Math.min(3, words[1].length()));
+            fullNames[i] = name;
+            char[] misspelled = name.toCharArray();
+            int typo = words[0].length() + 2 + random.nextInt(words[1].length() - 1);
+            misspelled[typo] = (char) ('a' + random.nextInt(26));
+            misspelledNames[i] = new String(misspelled);
+        }
+    }
+
+    @Benchmark
+    public List<GuestDTO> shortPrefix() {
+        return guestSearchIndex.search(prefixes[next++ & (QUERIES - 1)].substring(0, 2), LIMIT);
+    }
+
+    @Benchmark
+    public List<GuestDTO> prefix() {
+        return guestSearchIndex.search(prefixes[next++ & (QUERIES - 1)], LIMIT);
+    }
+
+    @Benchmark
+    public List<GuestDTO> fullName() {
+        return guestSearchIndex.search(fullNames[next++ & (QUERIES - 1)], LIMIT);
+    }
+
+    @Benchmark
+    public List<GuestDTO> misspelledName() {
+        return guestSearchIndex.search(misspelledNames[next++ & (QUERIES - 1)], LIMIT);
+    }
+
+    private static String word(Random random) {
+        int length = 4 + random.nextInt(6);
+        StringBuilder word = new StringBuilder(length);
+        boolean vowel = random.nextInt(3) == 0;
+        for (int i = 0; i < length; i++) {
+            String letters = vowel ? VOWELS : CONSONANTS;
+            word.append(letters.charAt(random.nextInt(letters.length())));
+            vowel = !vowel;
+        }
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.toString();
+    }
+}
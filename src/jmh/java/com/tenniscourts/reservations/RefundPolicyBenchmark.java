@@ -0,0 +1,61 @@
+package com.tenniscourts.reservations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one refund computation: the tiered policy in cents against the former
+ * BigDecimal computation of ReservationService.getRefundValue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RefundPolicyBenchmark {
+
+    private static final int STARTS = 1024;
+
+    private final LocalDateTime[] startDateTimes = new LocalDateTime[STARTS];
+    private final BigDecimal value = BigDecimal.TEN;
+    private final long valueCents = 1000L;
+
+    private RefundPolicy refundPolicy;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        refundPolicy = new TieredRefundPolicy(Clock.systemDefaultZone());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < STARTS; i++) {
+            startDateTimes[i] = now.plusMinutes(ThreadLocalRandom.current().nextInt(-60, 3 * 24 * 60));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal legacyGetRefundValue() {
+        LocalDateTime startDateTime = startDateTimes[next++ & (STARTS - 1)];
+        long hours = ChronoUnit.HOURS.between(LocalDateTime.now(), startDateTime);
+
+        if (hours >= 24) {
+            return value;
+        }
+
+        return BigDecimal.ZERO;
+    }
+
+    @Benchmark
+    public long tieredRefundCents() {
+        return refundPolicy.refundCents(valueCents, startDateTimes[next++ & (STARTS - 1)]);
+    }
+}
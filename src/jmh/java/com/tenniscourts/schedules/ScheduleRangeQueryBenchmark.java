@@ -0,0 +1,137 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.TennisCourtApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a one day schedule search over a few million generated schedules on the bundled H2.
+ * <p>
+ * The setup fails unless the all-courts search scans a range of idx_schedule_start and the court
+ * search reads only the rows of its court through an index on tennis_court_id, while the overlap
+ * predicate without a lower bound on the start, which the former search amounted to, reads every
+ * earlier row. H2 1.4 costs any range scan at a quarter of the table, so for the court search it
+ * picks the foreign key index over a range of uk_schedule_court_start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScheduleRangeQueryBenchmark {
+
+    private static final int COURTS = 30;
+    private static final long FIRST_COURT_ID = 1_000_001L;
+    private static final long FIRST_SCHEDULE_ID = 10_000_000L;
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    private static final String UNBOUNDED_SQL = "select * from schedule " +
+            "where start_date_time < ? and end_date_time > ? order by start_date_time, id limit 100";
+
+    @Param({"3000000"})
+    private int schedules;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private ScheduleRepository scheduleRepository;
+    private PageRequest pageRequest;
+    private long tennisCourtId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(TennisCourtApplication.class)
+                .web(WebApplicationType.NONE)
+                // arguments, as application.properties takes precedence over default properties
+                .run("--spring.main.banner-mode=off",
+                        "--spring.datasource.url=jdbc:h2:mem:schedule-range;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.hibernate.type=warn");
+
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        scheduleRepository = context.getBean(ScheduleRepository.class);
+
+        jdbcTemplate.update("insert into tennis_court (id, name) " +
+                "select x, 'Benchmark court ' || x from system_range(?, ?)", FIRST_COURT_ID, FIRST_COURT_ID + COURTS - 1);
+        jdbcTemplate.update("insert into schedule (id, tennis_court_id, start_date_time, end_date_time) " +
+                        "select x + ?, ? + mod(x, ?), dateadd('HOUR', x / ?, ?), dateadd('HOUR', x / ? + 1, ?) " +
+                        "from system_range(0, ?)",
+                FIRST_SCHEDULE_ID, FIRST_COURT_ID, COURTS, COURTS, Timestamp.valueOf(FIRST_START),
+                COURTS, Timestamp.valueOf(FIRST_START), schedules - 1);
+        jdbcTemplate.execute("analyze");
+
+        pageRequest = PageRequest.of(0, 100, Sort.by("startDateTime", "id"));
+        tennisCourtId = FIRST_COURT_ID + COURTS / 2;
+        from = FIRST_START.plusHours(schedules / COURTS / 2).toLocalDate().atStartOfDay();
+        to = from.plusDays(1);
+
+        requireIndexCondition("tennis_court_id =", "select * from schedule where tennis_court_id = " + tennisCourtId +
+                " and start_date_time > ? and start_date_time < ? and end_date_time > ? order by start_date_time, id limit 100",
+                from.minus(Schedule.DURATION), to, from);
+        requireIndexCondition("idx_schedule_start", "select * from schedule " +
+                        "where start_date_time > ? and start_date_time < ? and end_date_time > ? order by start_date_time, id limit 100",
+                from.minus(Schedule.DURATION), to, from);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Slice<Schedule> courtDay() {
+        return transactionTemplate.execute(status -> scheduleRepository.findOverlappingByTennisCourt(tennisCourtId,
+                from.minus(Schedule.DURATION), from, to, pageRequest));
+    }
+
+    @Benchmark
+    public Slice<Schedule> allCourtsDay() {
+        return transactionTemplate.execute(status -> scheduleRepository.findOverlapping(
+                from.minus(Schedule.DURATION), from, to, pageRequest));
+    }
+
+    @Benchmark
+    public List<?> unboundedStartDay() {
+        return jdbcTemplate.queryForList(UNBOUNDED_SQL, Timestamp.valueOf(to), Timestamp.valueOf(from));
+    }
+
+    /**
+     * Fails unless the index H2 plans to read, with its condition, mentions the expected text.
+     */
+    private void requireIndexCondition(String expected, String sql, LocalDateTime... parameters) {
+        Object[] timestamps = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            timestamps[i] = Timestamp.valueOf(parameters[i]);
+        }
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, timestamps);
+        int start = plan == null ? -1 : plan.indexOf("/*");
+        int end = start < 0 ? -1 : plan.indexOf("*/", start);
+        if (end < 0 || !plan.substring(start, end).toLowerCase().contains(expected)) {
+            throw new IllegalStateException("Expected an index read on " + expected + " but the plan is " + plan);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.tenniscourts.audit;
+
+/**
+ * What happened to an entity. The journal stores the code of the action, so existing codes must
+ * never change, whatever the order of the constants.
+ */
+public enum AuditAction {
+  CREATED(0),
+  UPDATED(1),
+  DELETED(2);
+
+  private final byte code;
+
+  AuditAction(int code) {
+    this.code = (byte) code;
+  }
+
+  public byte getCode() {
+    return code;
+  }
+
+  public static AuditAction fromCode(byte code) {
+    for (AuditAction action : values()) {
+      if (action.code == code) {
+        return action;
+      }
+    }
+    throw new IllegalArgumentException("Unknown audit action code " + code + ".");
+  }
+}
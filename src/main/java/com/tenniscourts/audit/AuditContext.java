@@ -0,0 +1,59 @@
+package com.tenniscourts.audit;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Principal;
+
+/**
+ * Who is writing: the client address and user of the request the current thread serves, or
+ * this host and the system user for scheduled jobs and other work outside a request.
+ * <p>
+ * The host address is resolved once, when the application starts, as resolving it can block
+ * on a slow DNS. The client address is the remote address of the request, which the servlet
+ * container rewrites from X-Forwarded-For when the request came through a trusted proxy.
+ */
+@Component
+public class AuditContext {
+
+    private final String hostAddress = resolveHostAddress();
+
+    public String clientAddress() {
+        HttpServletRequest request = currentRequest();
+        return request != null ? request.getRemoteAddr() : hostAddress;
+    }
+
+    /**
+     * The numeric name of the authenticated user, the system user otherwise.
+     */
+    public Long userId() {
+        HttpServletRequest request = currentRequest();
+        Principal principal = request != null ? request.getUserPrincipal() : null;
+        if (principal != null) {
+            try {
+                return Long.valueOf(principal.getName());
+            } catch (NumberFormatException e) {
+                return CustomAuditEntityListener.USER_SYSTEM_ID;
+            }
+        }
+        return CustomAuditEntityListener.USER_SYSTEM_ID;
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes ? ((ServletRequestAttributes) attributes).getRequest() : null;
+    }
+
+    private static String resolveHostAddress() {
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            return InetAddress.getLoopbackAddress().getHostAddress();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.tenniscourts.audit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * The journaled changes of an entity, oldest first, at /actuator/audit/{entityType}/{entityId}.
+ * The entity type is the simple name of the entity class, like Guest or Reservation. Reading
+ * the history scans the journal, so it is an operator endpoint rather than part of the API, and
+ * the optional fromSequence parameter skips the segments of older records.
+ */
+@Component
+@Endpoint(id = "audit")
+@RequiredArgsConstructor
+public class AuditEndpoint {
+    private final AuditJournalReader auditJournalReader;
+
+    @ReadOperation
+    public List<AuditRecordDTO> history(@Selector String entityType, @Selector Long entityId, @Nullable Long fromSequence) {
+        try {
+            return auditJournalReader.history(entityType, entityId, fromSequence != null ? fromSequence : 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
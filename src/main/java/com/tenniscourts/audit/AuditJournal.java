@@ -0,0 +1,230 @@
+package com.tenniscourts.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only history of entity changes, kept apart from the database.
+ * <p>
+ * Appending only publishes the record in a lock-free ring buffer, so writing an entity does not
+ * wait for the journal. A single writer thread drains the buffer in batches into memory-mapped
+ * segment files and forces them to disk every fsync interval, so a crash loses at most the
+ * records of the last interval. When the buffer is full, records are dropped and counted rather
+ * than slowing writes down. {@link AuditJournalReader} reads the segments back.
+ */
+@Slf4j
+@Component
+public class AuditJournal {
+    private static final String LOCK_FILE = "journal.lock";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int batchSize;
+    private final long fsyncNanos;
+    private final AuditRingBuffer<AuditRecordDTO> buffer;
+    private final Counter written;
+    private final Counter dropped;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+
+    // only touched by the writer thread once it started
+    private final ByteBuffer payload = ByteBuffer.allocate(AuditJournalFormat.MAX_PAYLOAD);
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private boolean dirty;
+    private long lastForce;
+
+    public AuditJournal(MeterRegistry meterRegistry,
+                        @Value("${tenniscourts.audit-journal.directory:${user.home}/tennisCourts-audit}") String directory,
+                        @Value("${tenniscourts.audit-journal.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${tenniscourts.audit-journal.buffer:65536}") int bufferSize,
+                        @Value("${tenniscourts.audit-journal.batch:1024}") int batchSize,
+                        @Value("${tenniscourts.audit-journal.fsync:PT1S}") Duration fsync) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.batchSize = batchSize;
+        this.fsyncNanos = fsync.toNanos();
+        this.buffer = new AuditRingBuffer<>(bufferSize);
+
+        this.written = Counter.builder("audit.journal.written")
+                .description("Audit records written to the journal")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("audit.journal.dropped")
+                .description("Audit records lost because the buffer was full or the journal could not be written")
+                .register(meterRegistry);
+        Gauge.builder("audit.journal.backlog", buffer, AuditRingBuffer::size)
+                .description("Audit records waiting for the writer")
+                .register(meterRegistry);
+
+        Files.createDirectories(this.directory);
+        this.lockChannel = FileChannel.open(this.directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.lock = tryLock(lockChannel);
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("The audit journal " + this.directory + " is already in use.");
+        }
+        openLastSegment();
+        this.lastForce = System.nanoTime();
+
+        this.writer = new Thread(this::writeLoop, "audit-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the record for the writer, which assigns its sequence.
+     */
+    public void append(AuditRecordDTO record) {
+        if (!buffer.offer(record)) {
+            dropped.increment();
+            return;
+        }
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+        lock.release();
+        lockChannel.close();
+    }
+
+    private static FileLock tryLock(FileChannel lockChannel) throws IOException {
+        try {
+            return lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // held by another journal of this JVM
+            return null;
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            int drained = buffer.drain(batchSize, this::write);
+            if (dirty && System.nanoTime() - lastForce >= fsyncNanos) {
+                force();
+            }
+            if (drained > 0) {
+                continue;
+            }
+            if (!running && buffer.isEmpty()) {
+                break;
+            }
+            parked = true;
+            if (running && buffer.isEmpty()) {
+                LockSupport.parkNanos(this, fsyncNanos);
+            }
+            parked = false;
+        }
+        force();
+        closeSegment();
+    }
+
+    private void write(AuditRecordDTO record) {
+        try {
+            payload.clear();
+            AuditJournalFormat.writePayload(payload, nextSequence, record);
+            int length = payload.position();
+            if (segment.remaining() < AuditJournalFormat.HEADER + length) {
+                rollSegment();
+            }
+            int position = segment.position();
+            segment.position(position + 4);
+            segment.putInt(AuditJournalFormat.checksum(payload.array(), length));
+            segment.put(payload.array(), 0, length);
+            // the length goes last, a reader stops at a record whose length is still zero
+            segment.putInt(position, length);
+            nextSequence++;
+            dirty = true;
+            written.increment();
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not write the audit record of {} {} to the journal.", record.getEntityType(), record.getEntityId(), e);
+            dropped.increment();
+        }
+    }
+
+    private void force() {
+        if (dirty) {
+            segment.force();
+            dirty = false;
+        }
+        lastForce = System.nanoTime();
+    }
+
+    private void openLastSegment() throws IOException {
+        List<Path> segments = AuditJournalFormat.segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(1);
+            return;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), AuditJournalFormat.HEADER));
+        nextSequence = AuditJournalFormat.firstSequence(last);
+        AuditRecordDTO record;
+        while ((record = AuditJournalFormat.read(segment)) != null) {
+            nextSequence = record.getSequence() + 1;
+        }
+        // zero whatever a crash left after the last whole record, so it cannot be read as records later
+        int end = segment.position();
+        byte[] zeros = new byte[8192];
+        while (segment.hasRemaining()) {
+            segment.put(zeros, 0, Math.min(zeros.length, segment.remaining()));
+        }
+        segment.position(end);
+    }
+
+    private void rollSegment() throws IOException {
+        force();
+        closeSegment();
+        openSegment(nextSequence);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        channel = FileChannel.open(directory.resolve(AuditJournalFormat.segmentName(firstSequence)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        nextSequence = firstSequence;
+    }
+
+    private void closeSegment() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close the audit journal segment.", e);
+        }
+        // closing the channel keeps the segment mapped until the buffer is garbage collected
+        AuditJournalFormat.unmap(segment);
+        segment = null;
+    }
+}
@@ -0,0 +1,179 @@
+package com.tenniscourts.audit;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Layout of the journal segments.
+ * <p>
+ * A segment is a preallocated file named after the sequence of its first record. Records follow
+ * each other from the start of the file, each one a header of the payload length and its CRC-32
+ * followed by the payload. The zeroed remainder of the file reads as a zero length, which marks
+ * the end of the segment, and so does a record whose checksum does not match, as happens when a
+ * crash tore it or when it is being written.
+ */
+final class AuditJournalFormat {
+    static final int HEADER = 8;
+    static final int MAX_PAYLOAD = 4096;
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final short NO_STRING = -1;
+    private static final long NO_USER = Long.MIN_VALUE;
+    private static final MethodHandle UNMAPPER = unmapper();
+
+    private AuditJournalFormat() {
+    }
+
+    static String segmentName(long firstSequence) {
+        return String.format("%020d%s", firstSequence, SEGMENT_SUFFIX);
+    }
+
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Releases the mapping of a segment now rather than once the buffer is garbage collected,
+     * which for a rarely collected old generation can keep every rolled segment mapped. The
+     * buffer must not be read or written afterwards.
+     */
+    static void unmap(MappedByteBuffer segment) {
+        if (UNMAPPER == null) {
+            return;
+        }
+        try {
+            UNMAPPER.invokeExact((ByteBuffer) segment);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // released once the buffer is garbage collected
+        }
+    }
+
+    /**
+     * The only way to release a mapping before Java 14 is the cleaner of sun.misc.Unsafe.
+     */
+    private static MethodHandle unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8, mappings are released by the garbage collector
+            return null;
+        }
+    }
+
+    /**
+     * The segments of the directory, oldest first.
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Appends the payload of the record to the buffer.
+     */
+    static void writePayload(ByteBuffer payload, long sequence, AuditRecordDTO record) {
+        LocalDateTime dateTime = record.getDateTime();
+        payload.putLong(sequence)
+                .put(record.getAction().getCode())
+                .putLong(record.getEntityId())
+                .putLong(dateTime.toEpochSecond(ZoneOffset.UTC))
+                .putInt(dateTime.getNano())
+                .putLong(record.getUserId() != null ? record.getUserId() : NO_USER);
+        putString(payload, record.getEntityType());
+        putString(payload, record.getIpNumber());
+    }
+
+    static int checksum(byte[] payload, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Reads the record at the position of the segment and moves past it, or returns null, leaving
+     * the position unchanged, when the segment ends there.
+     */
+    static AuditRecordDTO read(ByteBuffer segment) {
+        int position = segment.position();
+        if (segment.limit() - position < HEADER) {
+            return null;
+        }
+        int length = segment.getInt(position);
+        if (length <= 0 || length > MAX_PAYLOAD || length > segment.limit() - position - HEADER) {
+            return null;
+        }
+        ByteBuffer payload = segment.duplicate();
+        payload.position(position + HEADER).limit(position + HEADER + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != segment.getInt(position + 4)) {
+            return null;
+        }
+
+        long sequence = payload.getLong();
+        AuditAction action = AuditAction.fromCode(payload.get());
+        long entityId = payload.getLong();
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+        long userId = payload.getLong();
+        AuditRecordDTO record = AuditRecordDTO.builder()
+                .sequence(sequence)
+                .action(action)
+                .entityId(entityId)
+                .dateTime(dateTime)
+                .userId(userId != NO_USER ? userId : null)
+                .entityType(getString(payload))
+                .ipNumber(getString(payload))
+                .build();
+        segment.position(position + HEADER + length);
+        return record;
+    }
+
+    private static void putString(ByteBuffer payload, String value) {
+        if (value == null) {
+            payload.putShort(NO_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        payload.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getShort();
+        if (length == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
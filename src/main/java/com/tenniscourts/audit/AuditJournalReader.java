@@ -0,0 +1,68 @@
+package com.tenniscourts.audit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the segments written by {@link AuditJournal}, while it keeps appending. Records still
+ * in the journal buffer, or being written, are not visible yet.
+ */
+@Component
+public class AuditJournalReader {
+    private final Path directory;
+
+    public AuditJournalReader(@Value("${tenniscourts.audit-journal.directory:${user.home}/tennisCourts-audit}") String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Hands every record from the given sequence on to the consumer, in sequence order. Segments
+     * holding only older records are skipped without being read.
+     */
+    public void replay(long fromSequence, Consumer<AuditRecordDTO> consumer) throws IOException {
+        List<Path> segments = AuditJournalFormat.segments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && AuditJournalFormat.firstSequence(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                try {
+                    AuditRecordDTO record;
+                    while ((record = AuditJournalFormat.read(segment)) != null) {
+                        if (record.getSequence() >= fromSequence) {
+                            consumer.accept(record);
+                        }
+                    }
+                } finally {
+                    AuditJournalFormat.unmap(segment);
+                }
+            }
+        }
+    }
+
+    /**
+     * The changes of one entity from the given sequence on, oldest first. The journal has no
+     * index by entity, so this reads every segment from that sequence on and is meant for
+     * investigations, not for request paths.
+     */
+    public List<AuditRecordDTO> history(String entityType, Long entityId, long fromSequence) throws IOException {
+        List<AuditRecordDTO> history = new ArrayList<>();
+        replay(fromSequence, record -> {
+            if (record.getEntityId().equals(entityId) && record.getEntityType().equals(entityType)) {
+                history.add(record);
+            }
+        });
+        return history;
+    }
+}
@@ -0,0 +1,22 @@
+package com.tenniscourts.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuditRecordDTO {
+    private Long sequence;
+    private String entityType;
+    private Long entityId;
+    private AuditAction action;
+    private LocalDateTime dateTime;
+    private Long userId;
+    private String ipNumber;
+}
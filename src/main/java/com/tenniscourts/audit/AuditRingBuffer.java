@@ -0,0 +1,71 @@
+package com.tenniscourts.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * <p>
+ * A producer claims a sequence by compare-and-set on the tail and then publishes its element in
+ * the slot of that sequence. The consumer takes elements in sequence order, stopping at a slot
+ * that is claimed but not yet published, and releases slots by moving the head past them.
+ */
+class AuditRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    AuditRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two, was " + capacity + ".");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Adds the element unless the buffer is full.
+     */
+    boolean offer(E element) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        slots.lazySet((int) sequence & mask, element);
+        return true;
+    }
+
+    /**
+     * Hands up to max published elements to the consumer, in the order they were claimed, and
+     * returns how many it handed. Only one thread may drain.
+     */
+    int drain(int max, Consumer<? super E> consumer) {
+        long sequence = head.get();
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) sequence & mask;
+            E element = slots.get(slot);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(slot, null);
+            head.lazySet(++sequence);
+            drained++;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    long size() {
+        return Math.max(0, tail.get() - head.get());
+    }
+}
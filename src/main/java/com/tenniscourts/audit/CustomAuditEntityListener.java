@@ -1,45 +1,168 @@
 package com.tenniscourts.audit;
 
 import com.tenniscourts.config.persistence.BaseEntity;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
+/**
+ * Stamps who wrote an entity, from where and when.
+ * <p>
+ * Every entity written in one transaction gets the same stamp, taken from the clock and the
+ * {@link AuditContext} when the first of them is written, so a flush of many rows reads the
+ * clock and the request once. Hibernate obtains the listener from the Spring context.
+ * <p>
+ * Every insert, update and delete is also recorded in the {@link AuditJournal}, once its
+ * transaction committed, so the history the columns overwrite is kept. Bulk JPQL statements
+ * bypass the entity callbacks: a bulk update of entities whose history matters reports the rows
+ * it changed through {@link #bulkUpdated}, the others only touch derived or short-lived rows.
+ */
+@Component
 public class CustomAuditEntityListener {
 
     public final static Long USER_SYSTEM_ID = 1L;
 
+    private final Clock clock;
+    private final AuditContext auditContext;
+    private final AuditJournal auditJournal;
+
+    public CustomAuditEntityListener(Clock clock, AuditContext auditContext, AuditJournal auditJournal) {
+        this.clock = clock;
+        this.auditContext = auditContext;
+        this.auditJournal = auditJournal;
+    }
+
+    /**
+     * Stamps the update over whatever the entity held, the columns describe its last writer.
+     */
     @PreUpdate
-    public void preUpdate(BaseEntity baseEntity) throws UnknownHostException {
+    public void preUpdate(BaseEntity<? extends Number> baseEntity) {
+        Stamp stamp = currentStamp();
+        baseEntity.setDateUpdate(stamp.getDateTime());
+        baseEntity.setUserUpdate(stamp.getUserId());
+        baseEntity.setIpNumberUpdate(stamp.getAddress());
+    }
 
-        baseEntity.setDateUpdate(LocalDateTime.now());
+    @PrePersist
+    public void prePersist(BaseEntity<? extends Number> baseEntity) {
+        Stamp stamp = currentStamp();
+        baseEntity.setDateUpdate(stamp.getDateTime());
         if (Objects.isNull(baseEntity.getUserUpdate())) {
-            baseEntity.setUserUpdate(USER_SYSTEM_ID);
+            baseEntity.setUserUpdate(stamp.getUserId());
+        }
+        baseEntity.setDateCreate(stamp.getDateTime());
+        if (Objects.isNull(baseEntity.getUserCreate())) {
+            baseEntity.setUserCreate(stamp.getUserId());
         }
         if (Objects.isNull(baseEntity.getIpNumberUpdate())) {
-            baseEntity.setIpNumberUpdate(InetAddress.getLocalHost().getHostAddress());
+            baseEntity.setIpNumberUpdate(stamp.getAddress());
+        }
+        if (Objects.isNull(baseEntity.getIpNumberCreate())) {
+            baseEntity.setIpNumberCreate(stamp.getAddress());
         }
     }
 
-    @PrePersist
-    public void prePersist(BaseEntity baseEntity) throws UnknownHostException {
-        baseEntity.setDateUpdate(LocalDateTime.now());
-        if (Objects.isNull(baseEntity.getUserUpdate())) {
-            baseEntity.setUserUpdate(USER_SYSTEM_ID);
+    @PostPersist
+    public void postPersist(BaseEntity<? extends Number> baseEntity) {
+        journal(baseEntity, AuditAction.CREATED, baseEntity.getDateCreate(), baseEntity.getUserCreate(), baseEntity.getIpNumberCreate());
+    }
+
+    @PostUpdate
+    public void postUpdate(BaseEntity<? extends Number> baseEntity) {
+        journal(baseEntity, AuditAction.UPDATED, baseEntity.getDateUpdate(), baseEntity.getUserUpdate(), baseEntity.getIpNumberUpdate());
+    }
+
+    @PostRemove
+    public void postRemove(BaseEntity<? extends Number> baseEntity) {
+        Stamp stamp = currentStamp();
+        journal(baseEntity, AuditAction.DELETED, stamp.getDateTime(), stamp.getUserId(), stamp.getAddress());
+    }
+
+    /**
+     * Journals entities a bulk update changed, with the stamp of the current transaction, as the
+     * update does not go through the entity callbacks. The stamp columns of the rows are left as
+     * the update wrote them.
+     */
+    public void bulkUpdated(Class<? extends BaseEntity<? extends Number>> entityType, Collection<? extends Number> entityIds) {
+        Stamp stamp = currentStamp();
+        for (Number entityId : entityIds) {
+            journal(entityType.getSimpleName(), entityId.longValue(), AuditAction.UPDATED,
+                    stamp.getDateTime(), stamp.getUserId(), stamp.getAddress());
         }
-        baseEntity.setDateCreate(LocalDateTime.now());
-        if (Objects.isNull(baseEntity.getUserCreate())) {
-            baseEntity.setUserCreate(USER_SYSTEM_ID);
+    }
+
+    private void journal(BaseEntity<? extends Number> baseEntity, AuditAction action, LocalDateTime dateTime, Long userId, String ipNumber) {
+        journal(baseEntity.getClass().getSimpleName(), baseEntity.getId().longValue(), action, dateTime, userId, ipNumber);
+    }
+
+    private void journal(String entityType, long entityId, AuditAction action, LocalDateTime dateTime, Long userId, String ipNumber) {
+        AuditRecordDTO record = AuditRecordDTO.builder()
+                .entityType(entityType)
+                .entityId(entityId)
+                .action(action)
+                .dateTime(dateTime)
+                .userId(userId)
+                .ipNumber(ipNumber)
+                .build();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            currentStamp().getChanges().add(record);
+        } else {
+            auditJournal.append(record);
         }
-        if (Objects.isNull(baseEntity.getIpNumberCreate())) {
-            baseEntity.setIpNumberUpdate(InetAddress.getLocalHost().getHostAddress());
+    }
+
+    private Stamp currentStamp() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return newStamp();
         }
-        if (Objects.isNull(baseEntity.getIpNumberCreate())) {
-            baseEntity.setIpNumberCreate(InetAddress.getLocalHost().getHostAddress());
+        Stamp stamp = (Stamp) TransactionSynchronizationManager.getResource(Stamp.class);
+        if (stamp == null) {
+            Stamp transactionStamp = newStamp();
+            TransactionSynchronizationManager.bindResource(Stamp.class, transactionStamp);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    transactionStamp.getChanges().forEach(auditJournal::append);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(Stamp.class);
+                }
+            });
+            stamp = transactionStamp;
         }
+        return stamp;
+    }
+
+    private Stamp newStamp() {
+        return new Stamp(LocalDateTime.now(clock), auditContext.clientAddress(), auditContext.userId());
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static final class Stamp {
+
+        private final LocalDateTime dateTime;
+
+        private final String address;
+
+        private final Long userId;
+
+        private final List<AuditRecordDTO> changes = new ArrayList<>();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+package com.tenniscourts.config.instrumentation;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every request by the controller method serving it into an HDR percentile histogram,
+ * http.controller.requests, and records the Hibernate work the request did as distributions
+ * of statements, entity loads, entity fetches, queries and flushes per request.
+ * <p>
+ * An asynchronous request is timed from its first dispatch to the end of its last one.
+ */
+class ControllerMetricsInterceptor implements AsyncHandlerInterceptor {
+    static final String REQUESTS = "http.controller.requests";
+    static final String STATEMENTS = "http.controller.hibernate.statements";
+    static final String ENTITY_LOADS = "http.controller.hibernate.entity_loads";
+    static final String ENTITY_FETCHES = "http.controller.hibernate.entity_fetches";
+    static final String QUERIES = "http.controller.hibernate.queries";
+    static final String FLUSHES = "http.controller.hibernate.flushes";
+
+    private static final String START_ATTRIBUTE = ControllerMetricsInterceptor.class.getName() + ".start";
+    private static final String STATISTICS_ATTRIBUTE = ControllerMetricsInterceptor.class.getName() + ".statistics";
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+
+    ControllerMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        RequestStatistics requestStatistics = (RequestStatistics) request.getAttribute(STATISTICS_ATTRIBUTE);
+        if (requestStatistics == null) {
+            requestStatistics = new RequestStatistics(handlerName((HandlerMethod) handler));
+            request.setAttribute(STATISTICS_ATTRIBUTE, requestStatistics);
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        RequestStatistics.bind(requestStatistics);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestStatistics.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestStatistics.unbind();
+        RequestStatistics requestStatistics = (RequestStatistics) request.getAttribute(STATISTICS_ATTRIBUTE);
+        Long start = (Long) request.getAttribute(START_ATTRIBUTE);
+        if (requestStatistics == null || start == null) {
+            return;
+        }
+
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        Tags tags = Tags.of("controller", handlerMethod.getBeanType().getSimpleName(),
+                "method", handlerMethod.getMethod().getName());
+        Timer.builder(REQUESTS)
+                .description("Latency of the requests served by a controller method")
+                .tags(tags)
+                .tag("status", Integer.toString(response.getStatus()))
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        record(STATEMENTS, tags, requestStatistics.statements);
+        record(ENTITY_LOADS, tags, requestStatistics.entityLoads);
+        record(ENTITY_FETCHES, tags, requestStatistics.entityFetches);
+        record(QUERIES, tags, requestStatistics.queries);
+        record(FLUSHES, tags, requestStatistics.flushes);
+    }
+
+    private void record(String name, Tags tags, long value) {
+        DistributionSummary.builder(name)
+                .tags(tags)
+                .register(meterRegistry)
+                .record(value);
+    }
+
+    private static String handlerName(HandlerMethod handlerMethod) {
+        return handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+    }
+}
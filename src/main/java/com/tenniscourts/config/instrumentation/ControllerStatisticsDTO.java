@@ -0,0 +1,27 @@
+package com.tenniscourts.config.instrumentation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ControllerStatisticsDTO {
+    private String controller;
+    private String method;
+    private String status;
+    private long count;
+    private double meanMillis;
+    private double maxMillis;
+    private Map<String, Double> percentilesMillis;
+    private double statementsPerRequest;
+    private double entityLoadsPerRequest;
+    private double entityFetchesPerRequest;
+    private double queriesPerRequest;
+    private double flushesPerRequest;
+}
@@ -0,0 +1,28 @@
+package com.tenniscourts.config.instrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class InstrumentationConfig implements WebMvcConfigurer {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ControllerMetricsInterceptor(meterRegistry)).addPathPatterns("/api/**");
+    }
+
+    /**
+     * Picked up by the application task executor, which runs the asynchronous MVC requests.
+     */
+    @Bean
+    public TaskDecorator requestStatisticsTaskDecorator() {
+        return new RequestStatisticsTaskDecorator();
+    }
+}
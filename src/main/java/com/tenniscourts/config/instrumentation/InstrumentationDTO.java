@@ -0,0 +1,17 @@
+package com.tenniscourts.config.instrumentation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InstrumentationDTO {
+    private List<ControllerStatisticsDTO> controllers;
+    private List<SlowQueryDTO> slowQueries;
+}
@@ -0,0 +1,72 @@
+package com.tenniscourts.config.instrumentation;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Latency percentiles and Hibernate work per request of every controller method, and the
+ * recent slow queries, at /actuator/instrumentation. The same meters are on /actuator/metrics.
+ */
+@Component
+@Endpoint(id = "instrumentation")
+@RequiredArgsConstructor
+public class InstrumentationEndpoint {
+    private final MeterRegistry meterRegistry;
+    private final SlowQueryLog slowQueryLog;
+
+    @ReadOperation
+    public InstrumentationDTO instrumentation() {
+        return InstrumentationDTO.builder()
+                .controllers(meterRegistry.find(ControllerMetricsInterceptor.REQUESTS).timers().stream()
+                        .map(this::controllerStatistics)
+                        .sorted(Comparator.comparing(ControllerStatisticsDTO::getController)
+                                .thenComparing(ControllerStatisticsDTO::getMethod)
+                                .thenComparing(ControllerStatisticsDTO::getStatus))
+                        .collect(Collectors.toList()))
+                .slowQueries(slowQueryLog.recent())
+                .build();
+    }
+
+    private ControllerStatisticsDTO controllerStatistics(Timer timer) {
+        String controller = timer.getId().getTag("controller");
+        String method = timer.getId().getTag("method");
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            percentiles.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return ControllerStatisticsDTO.builder()
+                .controller(controller)
+                .method(method)
+                .status(timer.getId().getTag("status"))
+                .count(snapshot.count())
+                .meanMillis(snapshot.mean(TimeUnit.MILLISECONDS))
+                .maxMillis(snapshot.max(TimeUnit.MILLISECONDS))
+                .percentilesMillis(percentiles)
+                .statementsPerRequest(meanPerRequest(ControllerMetricsInterceptor.STATEMENTS, controller, method))
+                .entityLoadsPerRequest(meanPerRequest(ControllerMetricsInterceptor.ENTITY_LOADS, controller, method))
+                .entityFetchesPerRequest(meanPerRequest(ControllerMetricsInterceptor.ENTITY_FETCHES, controller, method))
+                .queriesPerRequest(meanPerRequest(ControllerMetricsInterceptor.QUERIES, controller, method))
+                .flushesPerRequest(meanPerRequest(ControllerMetricsInterceptor.FLUSHES, controller, method))
+                .build();
+    }
+
+    private double meanPerRequest(String name, String controller, String method) {
+        DistributionSummary summary = meterRegistry.find(name).tag("controller", controller).tag("method", method).summary();
+        return summary != null ? summary.mean() : 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.tenniscourts.config.instrumentation;
+
+/**
+ * Hibernate work done for the request the current thread serves. The counters are plain fields
+ * because one thread at a time works for a request: the request thread, then the MVC async task
+ * it hands the response to, see {@link RequestStatisticsTaskDecorator}. Work handed to other
+ * threads is not counted.
+ */
+final class RequestStatistics {
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    private final String handler;
+    long statements;
+    long entityLoads;
+    long entityFetches;
+    long queries;
+    long flushes;
+
+    RequestStatistics(String handler) {
+        this.handler = handler;
+    }
+
+    static RequestStatistics current() {
+        return CURRENT.get();
+    }
+
+    static void bind(RequestStatistics requestStatistics) {
+        CURRENT.set(requestStatistics);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * The controller method serving the request, as Controller.method.
+     */
+    String getHandler() {
+        return handler;
+    }
+}
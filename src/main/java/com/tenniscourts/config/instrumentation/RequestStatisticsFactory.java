@@ -0,0 +1,71 @@
+package com.tenniscourts.config.instrumentation;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+/**
+ * Builds the session factory statistics so that they also count the statements, entity loads,
+ * queries and flushes of the current request, see {@link RequestStatistics}. Set as
+ * hibernate.stats.factory, counts are only taken while hibernate.generate_statistics is on.
+ */
+public class RequestStatisticsFactory implements StatisticsFactory {
+
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new RequestCountingStatistics(sessionFactory);
+    }
+
+    private static final class RequestCountingStatistics extends StatisticsImpl {
+
+        private RequestCountingStatistics(SessionFactoryImplementor sessionFactory) {
+            super(sessionFactory);
+        }
+
+        @Override
+        public void prepareStatement() {
+            super.prepareStatement();
+            RequestStatistics current = RequestStatistics.current();
+            if (current != null) {
+                current.statements++;
+            }
+        }
+
+        @Override
+        public void loadEntity(String entityName) {
+            super.loadEntity(entityName);
+            RequestStatistics current = RequestStatistics.current();
+            if (current != null) {
+                current.entityLoads++;
+            }
+        }
+
+        @Override
+        public void fetchEntity(String entityName) {
+            super.fetchEntity(entityName);
+            RequestStatistics current = RequestStatistics.current();
+            if (current != null) {
+                current.entityFetches++;
+            }
+        }
+
+        @Override
+        public void queryExecuted(String hql, int rows, long time) {
+            super.queryExecuted(hql, rows, time);
+            RequestStatistics current = RequestStatistics.current();
+            if (current != null) {
+                current.queries++;
+            }
+        }
+
+        @Override
+        public void flush() {
+            super.flush();
+            RequestStatistics current = RequestStatistics.current();
+            if (current != null) {
+                current.flushes++;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.tenniscourts.config.instrumentation;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Carries the {@link RequestStatistics} of the submitting request over to the task, so the
+ * Hibernate work of a response body streamed by the MVC async executor counts for its request.
+ */
+class RequestStatisticsTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        RequestStatistics requestStatistics = RequestStatistics.current();
+        if (requestStatistics == null) {
+            return runnable;
+        }
+        return () -> {
+            RequestStatistics previous = RequestStatistics.current();
+            RequestStatistics.bind(requestStatistics);
+            try {
+                runnable.run();
+            } finally {
+                if (previous != null) {
+                    RequestStatistics.bind(previous);
+                } else {
+                    RequestStatistics.unbind();
+                }
+            }
+        };
+    }
+}
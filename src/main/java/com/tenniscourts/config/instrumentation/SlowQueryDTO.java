@@ -0,0 +1,22 @@
+package com.tenniscourts.config.instrumentation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SlowQueryDTO {
+    private String sql;
+    private List<String> parameters;
+    private int batchSize;
+    private double durationMillis;
+    private String handler;
+    private LocalDateTime capturedAt;
+}
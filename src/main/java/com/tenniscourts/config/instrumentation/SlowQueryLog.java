@@ -0,0 +1,98 @@
+package com.tenniscourts.config.instrumentation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The last statements that took longer than the slow query threshold, with their bind values,
+ * kept in memory instead of logged so that capturing them costs nothing until one is slow.
+ * <p>
+ * Bind values hold guest names and client addresses, so only their types are kept unless
+ * tenniscourts.sql-trace.capture-parameters is on.
+ */
+@Component
+public class SlowQueryLog {
+    private static final int MAX_PARAMETER_LENGTH = 200;
+
+    private final Clock clock;
+    private final boolean captureParameters;
+    private final Counter slowQueries;
+    private final AtomicReferenceArray<SlowQueryDTO> recent;
+    private final AtomicLong captured = new AtomicLong();
+
+    public SlowQueryLog(Clock clock,
+                        MeterRegistry meterRegistry,
+                        @Value("${tenniscourts.sql-trace.slow-queries:100}") int capacity,
+                        @Value("${tenniscourts.sql-trace.capture-parameters:false}") boolean captureParameters) {
+        this.clock = clock;
+        this.captureParameters = captureParameters;
+        this.recent = new AtomicReferenceArray<>(capacity);
+        this.slowQueries = Counter.builder("jdbc.slow_queries")
+                .description("Statements slower than the slow query threshold")
+                .register(meterRegistry);
+    }
+
+    void capture(String sql, Object[] parameters, int batchSize, long nanos) {
+        RequestStatistics requestStatistics = RequestStatistics.current();
+        SlowQueryDTO slowQuery = SlowQueryDTO.builder()
+                .sql(sql)
+                .parameters(format(parameters))
+                .batchSize(batchSize)
+                .durationMillis(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1))
+                .handler(requestStatistics != null ? requestStatistics.getHandler() : null)
+                .capturedAt(LocalDateTime.now(clock))
+                .build();
+        recent.set((int) (captured.getAndIncrement() % recent.length()), slowQuery);
+        slowQueries.increment();
+    }
+
+    /**
+     * The captured statements, latest first.
+     */
+    public List<SlowQueryDTO> recent() {
+        List<SlowQueryDTO> slowQueries = new ArrayList<>(recent.length());
+        for (int i = 0; i < recent.length(); i++) {
+            SlowQueryDTO slowQuery = recent.get(i);
+            if (slowQuery != null) {
+                slowQueries.add(slowQuery);
+            }
+        }
+        slowQueries.sort(Comparator.comparing(SlowQueryDTO::getCapturedAt).reversed());
+        return slowQueries;
+    }
+
+    private List<String> format(Object[] parameters) {
+        List<String> formatted = new ArrayList<>(parameters.length);
+        for (Object parameter : parameters) {
+            formatted.add(captureParameters || parameter == null ? format(parameter) : "<" + parameter.getClass().getSimpleName() + ">");
+        }
+        return formatted;
+    }
+
+    private static String format(Object parameter) {
+        if (parameter == null) {
+            return "null";
+        }
+        if (parameter instanceof byte[]) {
+            return "<" + ((byte[]) parameter).length + " bytes>";
+        }
+        if (parameter instanceof InputStream || parameter instanceof Reader) {
+            return "<stream>";
+        }
+        String value = parameter instanceof CharSequence ? "'" + parameter + "'" : parameter.toString();
+        return value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "..." : value;
+    }
+}
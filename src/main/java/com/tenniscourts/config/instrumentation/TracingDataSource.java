@@ -0,0 +1,138 @@
+package com.tenniscourts.config.instrumentation;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Times every statement run through the data source and hands the ones slower than the
+ * threshold, with their SQL and bind values, to the {@link SlowQueryLog}. Bind values are only
+ * kept as references until a statement turns out slow, so tracing does not log nor format
+ * anything on the fast path.
+ */
+class TracingDataSource extends DelegatingDataSource {
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private final ObjectProvider<SlowQueryLog> slowQueryLog;
+    private final long slowNanos;
+
+    TracingDataSource(DataSource targetDataSource, ObjectProvider<SlowQueryLog> slowQueryLog, long slowNanos) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+        this.slowNanos = slowNanos;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return trace(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return trace(super.getConnection(username, password));
+    }
+
+    private Connection trace(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            Object result = TracingDataSource.invoke(connection, method, args);
+            if (result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class
+                        : Statement.class;
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                        new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private Object[] parameters = NO_PARAMETERS;
+        private int parameterCount;
+        private int batchSize;
+
+        private StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                try {
+                    return TracingDataSource.invoke(statement, method, args);
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    boolean batch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+                    if (nanos >= slowNanos) {
+                        String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                        slowQueryLog.getObject().capture(executed, Arrays.copyOf(parameters, parameterCount), batch ? batchSize : 0, nanos);
+                    }
+                    if (batch) {
+                        batchSize = 0;
+                    }
+                }
+            }
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                Arrays.fill(parameters, null);
+                parameterCount = 0;
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            }
+            return TracingDataSource.invoke(statement, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+    }
+}
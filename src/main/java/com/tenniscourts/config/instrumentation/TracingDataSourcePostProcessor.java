@@ -0,0 +1,35 @@
+package com.tenniscourts.config.instrumentation;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the data sources in a {@link TracingDataSource} while tenniscourts.sql-trace.enabled
+ * is on.
+ */
+@Component
+@ConditionalOnProperty(name = "tenniscourts.sql-trace.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingDataSourcePostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<SlowQueryLog> slowQueryLog;
+    private final long slowNanos;
+
+    public TracingDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog,
+                                          @Value("${tenniscourts.sql-trace.slow-threshold:PT0.1S}") Duration slowThreshold) {
+        this.slowQueryLog = slowQueryLog;
+        this.slowNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof TracingDataSource)) {
+            return new TracingDataSource((DataSource) bean, slowQueryLog, slowNanos);
+        }
+        return bean;
+    }
+}
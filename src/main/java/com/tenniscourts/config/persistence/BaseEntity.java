@@ -4,6 +4,7 @@ import com.tenniscourts.audit.CustomAuditEntityListener;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 
@@ -24,7 +25,8 @@ import java.time.LocalDateTime;
 public class BaseEntity<ID> implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "base-entity-id")
+    @GenericGenerator(name = "base-entity-id", strategy = "com.tenniscourts.config.persistence.BaseEntityIdGenerator")
     private ID id;
 
     @Column
@@ -0,0 +1,43 @@
+package com.tenniscourts.config.persistence;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Sequence based id generator shared by every {@link BaseEntity}, one sequence per table.
+ * <p>
+ * Unlike identity columns it lets Hibernate batch inserts. The optimizer and the block size
+ * are read from the {@value #OPTIMIZER_SETTING} and {@value #INCREMENT_SIZE_SETTING}
+ * Hibernate settings and default to a pooled optimizer handing out blocks of
+ * {@value #DEFAULT_INCREMENT_SIZE} ids.
+ */
+public class BaseEntityIdGenerator extends SequenceStyleGenerator {
+
+    public static final String OPTIMIZER_SETTING = "tenniscourts.id.optimizer";
+
+    public static final String INCREMENT_SIZE_SETTING = "tenniscourts.id.increment_size";
+
+    public static final String DEFAULT_OPTIMIZER = "pooled";
+
+    public static final int DEFAULT_INCREMENT_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+
+        params.setProperty(SEQUENCE_PARAM, params.getProperty(PersistentIdentifierGenerator.TABLE) + "_seq");
+        params.setProperty(OPT_PARAM, ConfigurationHelper.getString(OPTIMIZER_SETTING, settings, DEFAULT_OPTIMIZER));
+        params.setProperty(INCREMENT_PARAM, String.valueOf(
+                ConfigurationHelper.getInt(INCREMENT_SIZE_SETTING, settings, DEFAULT_INCREMENT_SIZE)));
+
+        super.configure(type, params, serviceRegistry);
+    }
+}
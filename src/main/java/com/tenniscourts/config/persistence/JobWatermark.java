@@ -0,0 +1,36 @@
+package com.tenniscourts.config.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/**
+ * How far a background job got, so it resumes there after a restart.
+ */
+@Entity
+@Table
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class JobWatermark extends BaseEntity<Long> {
+
+    @Column(unique = true)
+    @NotNull
+    private String name;
+
+    @Column
+    @NotNull
+    private LocalDateTime watermark;
+}
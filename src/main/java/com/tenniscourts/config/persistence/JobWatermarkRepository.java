@@ -0,0 +1,15 @@
+package com.tenniscourts.config.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, Long> {
+
+    Optional<JobWatermark> findByName(String name);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<JobWatermark> findLockedByName(String name);
+}
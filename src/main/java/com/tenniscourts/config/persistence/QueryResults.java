@@ -0,0 +1,25 @@
+package com.tenniscourts.config.persistence;
+
+import java.time.LocalDate;
+
+/**
+ * Conversions for the untyped columns of projection queries.
+ */
+public final class QueryResults {
+
+    private QueryResults() {
+    }
+
+    /**
+     * Converts the result of a {@code cast(... as date)} projection.
+     */
+    public static LocalDate toLocalDate(Object date) {
+        if (date instanceof LocalDate) {
+            return (LocalDate) date;
+        }
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return new java.sql.Date(((java.util.Date) date).getTime()).toLocalDate();
+    }
+}
@@ -0,0 +1,51 @@
+package com.tenniscourts.config.persistence;
+
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Publishes the hit ratio of every second-level cache region as hibernate.cache.hit_ratio,
+ * tagged with the region. Hibernate's own metrics already count hits, misses and puts per
+ * region, the ratio is what tells whether a region is sized right.
+ */
+@Component
+public class SecondLevelCacheMetrics {
+    private static final List<String> REGIONS = Arrays.asList(
+            Guest.CACHE_REGION,
+            GuestRepository.BY_NAME_CACHE_REGION,
+            TennisCourt.CACHE_REGION);
+
+    public SecondLevelCacheMetrics(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        REGIONS.forEach(region -> Gauge.builder("hibernate.cache.hit_ratio", statistics, s -> hitRatio(s, region))
+                .description("Share of second-level cache lookups answered by the region")
+                .tag("region", region)
+                .register(meterRegistry));
+    }
+
+    private static double hitRatio(Statistics statistics, String region) {
+        CacheRegionStatistics regionStatistics;
+        try {
+            regionStatistics = statistics.getCacheRegionStatistics(region);
+        } catch (IllegalArgumentException e) {
+            // query result regions only exist once their first query ran
+            return Double.NaN;
+        }
+        if (regionStatistics == null) {
+            return Double.NaN;
+        }
+        long lookups = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+        return lookups == 0 ? Double.NaN : (double) regionStatistics.getHitCount() / lookups;
+    }
+}
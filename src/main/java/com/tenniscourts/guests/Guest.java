@@ -8,14 +8,20 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 
 @Entity
-@Table
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Guest.CACHE_REGION)
+@Table(indexes = @Index(name = "idx_guest_name", columnList = "name"))
 @Getter
 @Setter
 @Builder
@@ -25,6 +31,8 @@ import javax.validation.constraints.NotNull;
 @ToString
 public class Guest extends BaseEntity<Long> {
 
+  public static final String CACHE_REGION = "guests";
+
   @Column
   @NotNull
   private String name;
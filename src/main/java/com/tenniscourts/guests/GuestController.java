@@ -1,17 +1,32 @@
 package com.tenniscourts.guests;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tenniscourts.config.BaseRestController;
 import com.tenniscourts.exceptions.ErrorDetails;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @AllArgsConstructor
@@ -19,9 +34,16 @@ import java.util.List;
 @RequestMapping("/api/v1/guests")
 @Validated
 public class GuestController extends BaseRestController {
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private final GuestService guestService;
+    private final GuestImporter guestImporter;
+    private final ObjectMapper objectMapper;
 
-    @ApiOperation(value = "Get all Guests if no name given, or all guests your specified name",
+    @ApiOperation(value = "Get a page of guests ordered by id if no name given, or all guests your specified name",
+            notes = "Pass the id of the last guest received as afterId to read the next page without an offset. " +
+                    "A Link header with rel=\"next\" points to the following page when there is one.",
             consumes = "application/json", produces = "application/json")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successfully obtained the guests", response = List.class),
@@ -31,8 +53,69 @@ public class GuestController extends BaseRestController {
             @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
     })
     @GetMapping
-    public ResponseEntity<List<GuestDTO>> getAll(@RequestParam(value = "name", required = false) @Valid String name) {
-        List<GuestDTO> guests = name != null ? guestService.getGuestsByName(name) : guestService.getAllGuests();
+    public ResponseEntity<List<GuestDTO>> getAll(@RequestParam(value = "name", required = false) @Valid String name,
+                                                 @RequestParam(value = "afterId", required = false) Long afterId,
+                                                 @RequestParam(value = "page", defaultValue = "0") @Min(0) int page,
+                                                 @RequestParam(value = "size", defaultValue = "100") @Min(1) @Max(1000) int size) {
+        if (name != null) {
+            List<GuestDTO> guests = guestService.getGuestsByName(name);
+            return guests.isEmpty() ?
+                    ResponseEntity.noContent().build() :
+                    ResponseEntity.ok(guests);
+        }
+
+        Slice<GuestDTO> guests = guestService.getGuests(afterId, page, size);
+        if (!guests.hasContent()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (guests.hasNext()) {
+            List<GuestDTO> content = guests.getContent();
+            response.header(HttpHeaders.LINK, "<" + ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("page")
+                    .replaceQueryParam("afterId", content.get(content.size() - 1).getId())
+                    .toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(guests.getContent());
+    }
+
+    @ApiOperation(value = "Export every guest ordered by id",
+            notes = "Streams one JSON line per guest, memory does not grow with the number of guests.",
+            produces = APPLICATION_NDJSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully streamed the guests", response = GuestDTO.class, responseContainer = "List"),
+            @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        StreamingResponseBody body = outputStream -> guestService.streamGuests(guest -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(guest));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+    }
+
+    @ApiOperation(value = "Search guests by a partial or misspelled name",
+            notes = "Answered from memory. Matches every word of the query, the last one as a prefix, and tolerates " +
+                    "typos in longer words. The closest names come first.",
+            produces = "application/json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully obtained the matching guests", response = GuestDTO.class, responseContainer = "List"),
+            @ApiResponse(code = 204, message = "No guests found"),
+            @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
+            @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<GuestDTO>> search(@RequestParam(value = "q") @NotBlank String query,
+                                                 @RequestParam(value = "limit", defaultValue = "10") @Min(1) @Max(100) int limit) {
+        List<GuestDTO> guests = guestService.searchGuests(query, limit);
         return guests.isEmpty() ?
                 ResponseEntity.noContent().build() :
                 ResponseEntity.ok(guests);
@@ -67,6 +150,29 @@ public class GuestController extends BaseRestController {
         return ResponseEntity.created(locationByEntity(guest.getId())).body(guest);
     }
 
+    @ApiOperation(value = "Import guests in bulk from a CSV or NDJSON body",
+            notes = "CSV bodies need a header with a name column, NDJSON bodies hold one guest per line. The body is " +
+                    "read row by row and valid rows are inserted in chunks. Invalid rows are skipped and reported " +
+                    "by line, at most the first tenniscourts.guest-import.max-errors of them.",
+            consumes = TEXT_CSV_VALUE + ", " + APPLICATION_NDJSON_VALUE, produces = "application/json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Imported the valid guests", response = GuestImportReportDTO.class),
+            @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
+            @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 415, message = "Unsupported Media Type", response = ErrorDetails.class),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @PostMapping(value = "/import", consumes = {TEXT_CSV_VALUE, APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<GuestImportReportDTO> importGuests(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                             InputStream body) throws IOException {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        Reader reader = new InputStreamReader(body,
+                mediaType.getCharset() != null ? mediaType.getCharset() : StandardCharsets.UTF_8);
+        return ResponseEntity.ok(mediaType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE)) ?
+                guestImporter.importCsv(reader) :
+                guestImporter.importNdjson(reader));
+    }
+
     @ApiOperation(value = "Update a guest",
             consumes = "application/json", produces = "application/json")
     @ApiResponses(value = {
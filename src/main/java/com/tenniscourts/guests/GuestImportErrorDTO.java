@@ -0,0 +1,15 @@
+package com.tenniscourts.guests;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GuestImportErrorDTO {
+    private long line;
+    private String message;
+}
@@ -0,0 +1,19 @@
+package com.tenniscourts.guests;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GuestImportReportDTO {
+    private long imported;
+    private long rejected;
+    private List<GuestImportErrorDTO> errors;
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,196 @@
+package com.tenniscourts.guests;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports guests from a CSV or NDJSON body read one row at a time, so the size of the body
+ * does not matter. Rows are validated like a single guest creation, and the valid ones are
+ * inserted in chunks, each in its own transaction and sent as JDBC batches. Rows that cannot
+ * be parsed, are invalid, or belong to a chunk that failed are reported by line and skipped.
+ */
+@Service
+public class GuestImporter {
+    private static final String NAME_COLUMN = "name";
+
+    private final GuestRepository guestRepository;
+    private final GuestMapper guestMapper;
+    private final GuestSearchIndex guestSearchIndex;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public GuestImporter(GuestRepository guestRepository,
+                         GuestMapper guestMapper,
+                         GuestSearchIndex guestSearchIndex,
+                         Validator validator,
+                         ObjectMapper objectMapper,
+                         EntityManager entityManager,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${tenniscourts.guest-import.chunk:500}") int chunkSize,
+                         @Value("${tenniscourts.guest-import.max-errors:1000}") int maxErrors) {
+        this.guestRepository = guestRepository;
+        this.guestMapper = guestMapper;
+        this.guestSearchIndex = guestSearchIndex;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Imports CSV records with a header naming a name column, other columns are ignored.
+     */
+    public GuestImportReportDTO importCsv(Reader body) throws IOException {
+        CsvRecordReader records = new CsvRecordReader(new BufferedReader(body));
+        List<String> header = records.next();
+        int nameColumn = header == null ? -1 : indexOfIgnoreCase(header, NAME_COLUMN);
+        if (nameColumn < 0) {
+            throw new IllegalArgumentException("The CSV header must have a " + NAME_COLUMN + " column.");
+        }
+
+        Import guests = new Import();
+        while (true) {
+            List<String> record;
+            try {
+                record = records.next();
+            } catch (IOException e) {
+                // an unterminated quote swallowed the rest of the body
+                guests.reject(records.getRecordLine(), e.getMessage());
+                break;
+            }
+            if (record == null) {
+                break;
+            }
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue;
+            }
+            guests.add(records.getRecordLine(), GuestRequestDTO.builder()
+                    .name(nameColumn < record.size() ? record.get(nameColumn) : null)
+                    .build());
+        }
+        return guests.finish();
+    }
+
+    /**
+     * Imports one JSON guest per line.
+     */
+    public GuestImportReportDTO importNdjson(Reader body) throws IOException {
+        BufferedReader lines = new BufferedReader(body);
+        Import guests = new Import();
+        long line = 0;
+        String json;
+        while ((json = lines.readLine()) != null) {
+            line++;
+            if (json.trim().isEmpty()) {
+                continue;
+            }
+            if (line == 1 && json.charAt(0) == CsvRecordReader.BYTE_ORDER_MARK) {
+                json = json.substring(1);
+            }
+            try {
+                GuestRequestDTO request = objectMapper.readValue(json, GuestRequestDTO.class);
+                if (request == null) {
+                    guests.reject(line, "Expected a JSON object, got null.");
+                    continue;
+                }
+                guests.add(line, request);
+            } catch (JsonProcessingException e) {
+                guests.reject(line, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+        return guests.finish();
+    }
+
+    private static int indexOfIgnoreCase(List<String> header, String column) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private final class Import {
+        private final List<Long> chunkLines = new ArrayList<>(chunkSize);
+        private final List<Guest> chunk = new ArrayList<>(chunkSize);
+        private final List<GuestImportErrorDTO> errors = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        private void add(long line, GuestRequestDTO request) {
+            Set<ConstraintViolation<GuestRequestDTO>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(line, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " - " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                return;
+            }
+
+            chunkLines.add(line);
+            chunk.add(guestMapper.toGuest(request));
+            if (chunk.size() == chunkSize) {
+                flush();
+            }
+        }
+
+        private void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(GuestImportErrorDTO.builder().line(line).message(message).build());
+            }
+        }
+
+        private void flush() {
+            try {
+                transactionTemplate.execute(status -> {
+                    guestRepository.saveAll(chunk);
+                    entityManager.flush();
+                    chunk.forEach(guest -> guestSearchIndex.put(guest.getId(), guest.getName()));
+                    entityManager.clear();
+                    return null;
+                });
+                imported += chunk.size();
+            } catch (DataAccessException e) {
+                chunkLines.forEach(line -> reject(line, "Not imported, its chunk failed: " + e.getMostSpecificCause().getMessage()));
+            }
+            chunkLines.clear();
+            chunk.clear();
+        }
+
+        private GuestImportReportDTO finish() {
+            if (!chunk.isEmpty()) {
+                flush();
+            }
+            errors.sort((first, second) -> Long.compare(first.getLine(), second.getLine()));
+            return GuestImportReportDTO.builder()
+                    .imported(imported)
+                    .rejected(rejected)
+                    .errors(errors)
+                    .errorsTruncated(rejected > errors.size())
+                    .build();
+        }
+    }
+}
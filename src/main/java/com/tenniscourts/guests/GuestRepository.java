@@ -1,11 +1,53 @@
 package com.tenniscourts.guests;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface GuestRepository extends JpaRepository<Guest, Long> {
+    String BY_NAME_CACHE_REGION = "guestsByName";
+
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = BY_NAME_CACHE_REGION)
+    })
     List<Guest> findByName(String name);
+
+    Slice<Guest> findAllBy(Pageable pageable);
+
+    Slice<Guest> findByIdGreaterThan(Long afterId, Pageable pageable);
+
+    /**
+     * Every guest, by id, bypassing the second-level cache, a full export would only evict the
+     * guests actually looked up. The hint only holds while the query opens, so the caller also
+     * sets the cache mode of its session for as long as it reads the stream.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + GuestService.FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("select g from Guest g order by g.id")
+    Stream<Guest> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + GuestService.FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select g.id, g.name from Guest g order by g.id")
+    Stream<Object[]> streamNames();
 }
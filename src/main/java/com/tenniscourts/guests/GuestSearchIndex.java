@@ -0,0 +1,481 @@
+package com.tenniscourts.guests;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over the guest names, answering ranked prefix and typo tolerant
+ * searches without touching the database.
+ * <p>
+ * Names are lower-cased, stripped of accents and split into words, and every word is padded
+ * with two leading blanks and one trailing blank before being cut into trigrams, so the leading
+ * trigrams of a word match what was typed so far and a typo only costs the trigrams around it.
+ * Every guest gets a dense ordinal and every trigram a posting list of ordinals, append only
+ * and therefore sorted. A search first asks for names holding every query trigram and, while
+ * that yields nothing, gives up the trigrams of one more typo at a time, up to
+ * {@value #MAX_TYPOS} typos. Each pass merges only
+ * the shortest posting lists its minimum overlap requires, gallops through the others for the
+ * names found, and keeps the best matches in a bounded heap. Queries of three trigrams or fewer
+ * must match all of them, and a pass stops early once it saw {@value #FULL_MATCHES_PER_HIT}
+ * full matches per requested hit.
+ * <p>
+ * The index is loaded on the first search and then kept up to date, after commit, by the guest
+ * changes. A renamed or deleted guest leaves a dead ordinal behind, and the postings are
+ * rebuilt once dead ordinals outnumber live ones.
+ */
+@Component
+public class GuestSearchIndex {
+    /**
+     * Share of the query trigrams a name must contain to match at all.
+     */
+    static final double MIN_CONTAINMENT = 0.4;
+
+    /**
+     * Mistyped letters a search tolerates before giving up.
+     */
+    static final int MAX_TYPOS = 2;
+
+    /**
+     * Full matches looked at per requested hit before a search stops. A query matching more
+     * names than that, a couple of letters, has no meaningful ranking among them, and reading
+     * them all would cost a cache miss each.
+     */
+    static final int FULL_MATCHES_PER_HIT = 50;
+
+    /**
+     * Dead ordinals left by renamed and deleted guests before the postings may be rebuilt.
+     */
+    static final int MIN_REMOVED_TO_COMPACT = 1024;
+
+    /**
+     * Trigrams a single mistyped letter can break, the overlap each relaxing pass gives up.
+     */
+    private static final int TRIGRAMS_PER_TYPO = 3;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final GuestRepository guestRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinalsById = new HashMap<>();
+    private Map<Long, Postings> postings = new HashMap<>();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] trigramCounts = new int[INITIAL_CAPACITY];
+    private int size;
+    private int removed;
+    private volatile boolean loaded;
+
+    public GuestSearchIndex(GuestRepository guestRepository, PlatformTransactionManager transactionManager) {
+        this.guestRepository = guestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * The guests whose name best matches the query, at most limit of them, the closest first.
+     * Names containing more of the query trigrams come first, then names with fewer trigrams
+     * the query lacks, then the oldest guests.
+     */
+    public List<GuestDTO> search(String query, int limit) {
+        long[] queryTrigrams = trigrams(normalize(query), true);
+        if (queryTrigrams.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        ensureLoaded();
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(queryTrigrams.length);
+            for (long trigram : queryTrigrams) {
+                Postings list = postings.get(trigram);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            // every pass finds a superset of the previous one, and the names a pass missed share fewer
+            // trigrams than all of its hits, so a weaker match is only looked for when nothing closer exists
+            int floor = minShared(queryTrigrams.length);
+            PriorityQueue<Hit> best = new PriorityQueue<>(Hit.BEST_FIRST.reversed());
+            for (int minShared = Math.min(queryTrigrams.length, lists.size()); minShared >= floor;
+                 minShared = minShared == floor ? floor - 1 : Math.max(floor, minShared - TRIGRAMS_PER_TYPO)) {
+                best = collect(lists, queryTrigrams.length, minShared, limit);
+                if (!best.isEmpty()) {
+                    break;
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(Hit.BEST_FIRST);
+            List<GuestDTO> guests = new ArrayList<>(hits.size());
+            for (Hit hit : hits) {
+                guests.add(GuestDTO.builder().id(hit.id).name(names[hit.ordinal]).build());
+            }
+            return guests;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The best hits, at most limit of them, among the names sharing at least minShared trigrams
+     * with the query, worst first.
+     */
+    private PriorityQueue<Hit> collect(List<Postings> lists, int queryTrigrams, int minShared, int limit) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, Hit.BEST_FIRST.reversed());
+        // a name missing from every one of the shortest size - minShared + 1 lists cannot reach minShared,
+        // so only those are merged and the longer ones are only probed for the names they yield
+        int merged = lists.size() - minShared + 1;
+        int[] cursors = new int[lists.size()];
+        int[] probes = new int[lists.size() - merged];
+        for (int k = 0; k < probes.length; k++) {
+            probes[k] = merged + k;
+        }
+        int fullMatches = 0;
+        while (true) {
+            int ordinal = Integer.MAX_VALUE;
+            for (int i = 0; i < merged; i++) {
+                Postings list = lists.get(i);
+                if (cursors[i] < list.size && list.ordinals[cursors[i]] < ordinal) {
+                    ordinal = list.ordinals[cursors[i]];
+                }
+            }
+            if (ordinal == Integer.MAX_VALUE) {
+                return best;
+            }
+
+            int shared = 0;
+            for (int i = 0; i < merged; i++) {
+                Postings list = lists.get(i);
+                if (cursors[i] < list.size && list.ordinals[cursors[i]] == ordinal) {
+                    shared++;
+                    cursors[i]++;
+                }
+            }
+            if (shared + lists.size() - merged < minShared) {
+                continue;
+            }
+            for (int k = 0; k < probes.length && shared + probes.length - k >= minShared; k++) {
+                int i = probes[k];
+                Postings list = lists.get(i);
+                cursors[i] = list.seek(cursors[i], ordinal);
+                if (cursors[i] < list.size && list.ordinals[cursors[i]] == ordinal) {
+                    shared++;
+                } else if (k > 0) {
+                    // the trigrams of one word are correlated, so the list rejecting names moves up to reject them sooner
+                    probes[k] = probes[k - 1];
+                    probes[k - 1] = i;
+                }
+            }
+            if (shared < minShared || names[ordinal] == null) {
+                continue;
+            }
+            if (shared == queryTrigrams && ++fullMatches > limit * FULL_MATCHES_PER_HIT) {
+                return best;
+            }
+
+            int union = queryTrigrams + trigramCounts[ordinal] - shared;
+            if (best.size() == limit && Hit.compare(shared, union, ids[ordinal], best.peek()) >= 0) {
+                continue;
+            }
+            best.offer(new Hit(ordinal, shared, union, ids[ordinal]));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+    }
+
+    /**
+     * Indexes the guest under its current name, once the surrounding transaction commits.
+     */
+    public void put(Long id, String name) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    // a rename leaves a dead ordinal behind just like a delete
+                    index(id, name);
+                    compactIfMostlyRemoved();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Removes the guest from the index, once the surrounding transaction commits.
+     */
+    public void remove(Long id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    unindex(id);
+                    compactIfMostlyRemoved();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Indexes every (id, name) row, replacing whatever was indexed before.
+     */
+    void load(Stream<Object[]> guests) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            guests.forEach(row -> index((Long) row[0], (String) row[1]));
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                transactionTemplate.execute(status -> {
+                    try (Stream<Object[]> guests = guestRepository.streamNames()) {
+                        load(guests);
+                    }
+                    return null;
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Long id, String name) {
+        Integer existing = ordinalsById.get(id);
+        if (existing != null) {
+            if (names[existing].equals(name)) {
+                return;
+            }
+            unindex(id);
+        }
+
+        long[] nameTrigrams = trigrams(normalize(name), false);
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            trigramCounts = Arrays.copyOf(trigramCounts, capacity);
+        }
+        int ordinal = size++;
+        ids[ordinal] = id;
+        names[ordinal] = name;
+        trigramCounts[ordinal] = nameTrigrams.length;
+        ordinalsById.put(id, ordinal);
+        for (long trigram : nameTrigrams) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(ordinal);
+        }
+    }
+
+    private void unindex(Long id) {
+        Integer ordinal = ordinalsById.remove(id);
+        if (ordinal != null) {
+            // the ordinal stays in its posting lists until the next compaction, searches skip it
+            names[ordinal] = null;
+            removed++;
+        }
+    }
+
+    private void compactIfMostlyRemoved() {
+        if (removed >= MIN_REMOVED_TO_COMPACT && removed > size - removed) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        long[] liveIds = ids;
+        String[] liveNames = names;
+        int liveSize = size;
+        clear();
+        for (int ordinal = 0; ordinal < liveSize; ordinal++) {
+            if (liveNames[ordinal] != null) {
+                index(liveIds[ordinal], liveNames[ordinal]);
+            }
+        }
+    }
+
+    private void clear() {
+        ordinalsById.clear();
+        postings = new HashMap<>();
+        ids = new long[INITIAL_CAPACITY];
+        names = new String[INITIAL_CAPACITY];
+        trigramCounts = new int[INITIAL_CAPACITY];
+        size = 0;
+        removed = 0;
+    }
+
+    /**
+     * The ordinals handed out since the last compaction, live and dead.
+     */
+    int ordinals() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    /**
+     * The fewest query trigrams a matching name shares. Short queries, a couple of letters or a
+     * short word, must match all their trigrams, as a single shared trigram would match a large
+     * part of the guests.
+     */
+    static int minShared(int queryTrigrams) {
+        return queryTrigrams <= 3 ?
+                queryTrigrams :
+                Math.max(queryTrigrams - MAX_TYPOS * TRIGRAMS_PER_TYPO, (int) Math.ceil(queryTrigrams * MIN_CONTAINMENT));
+    }
+
+    /**
+     * Lower-cased words of the name without accents, separated by single blanks.
+     */
+    static String normalize(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            } else if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+                normalized.append(' ');
+            }
+        }
+        int length = normalized.length();
+        return length > 0 && normalized.charAt(length - 1) == ' ' ? normalized.substring(0, length - 1) : normalized.toString();
+    }
+
+    /**
+     * The distinct padded trigrams of the normalized words, sorted. When prefix is true the last
+     * word may be unfinished, so it gets no trailing blank.
+     */
+    static long[] trigrams(String normalized, boolean prefix) {
+        if (normalized.isEmpty()) {
+            return new long[0];
+        }
+        String[] words = normalized.split(" ");
+        long[] trigrams = new long[normalized.length() + 3 * words.length];
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            String padded = "  " + words[w] + (prefix && w == words.length - 1 ? "" : " ");
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams[count++] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+            }
+        }
+        Arrays.sort(trigrams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || trigrams[distinct - 1] != trigrams[i]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        /**
+         * The first position from the cursor on holding an ordinal not below the given one, found by
+         * galloping, as successive probes of one search ask for ascending and mostly close ordinals.
+         */
+        private int seek(int cursor, int ordinal) {
+            int step = 1;
+            int low = cursor;
+            int high = cursor;
+            while (high < size && ordinals[high] < ordinal) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(ordinals, low, Math.min(high + 1, size), ordinal);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+
+    private static final class Hit {
+        private static final Comparator<Hit> BEST_FIRST = (first, second) ->
+                compare(first.shared, first.union, first.id, second);
+
+        private final int ordinal;
+        private final int shared;
+        private final int union;
+        private final long id;
+
+        private Hit(int ordinal, int shared, int union, long id) {
+            this.ordinal = ordinal;
+            this.shared = shared;
+            this.union = union;
+            this.id = id;
+        }
+
+        /**
+         * Negative when a hit with the given shared and union trigram counts and id ranks before
+         * the other one.
+         */
+        private static int compare(int shared, int union, long id, Hit other) {
+            if (shared != other.shared) {
+                return Integer.compare(other.shared, shared);
+            }
+            if (union != other.union) {
+                return Integer.compare(union, other.union);
+            }
+            return Long.compare(id, other.id);
+        }
+    }
+}
@@ -2,21 +2,63 @@ package com.tenniscourts.guests;
 
 import com.tenniscourts.exceptions.EntityNotFoundException;
 import lombok.AllArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class GuestService {
+    static final int FETCH_SIZE = 500;
+
     private final GuestRepository guestRepository;
     private final GuestMapper guestMapper;
+    private final GuestSearchIndex guestSearchIndex;
+    private final EntityManager entityManager;
 
-    public List<GuestDTO> getAllGuests() {
-        return guestRepository.findAll().stream()
-                .map(guestMapper::toDTO)
-                .collect(Collectors.toList());
+    /**
+     * A page of guests ordered by id. With an afterId the page starts right after that guest
+     * and the page number is ignored, so deep pages cost the same as the first one.
+     */
+    public Slice<GuestDTO> getGuests(Long afterId, int page, int size) {
+        Slice<Guest> guests = afterId != null ?
+                guestRepository.findByIdGreaterThan(afterId, PageRequest.of(0, size, Sort.by("id"))) :
+                guestRepository.findAllBy(PageRequest.of(page, size, Sort.by("id")));
+        return guests.map(guestMapper::toDTO);
+    }
+
+    /**
+     * Hands every guest to the consumer ordered by id. The persistence context is cleared every
+     * {@value #FETCH_SIZE} rows, so memory does not grow with the number of guests, and the guests
+     * streamed do not go through the second-level cache.
+     */
+    @Transactional
+    public void streamGuests(Consumer<GuestDTO> consumer) {
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        // the cache mode hint of the query only holds while it opens, rows are loaded as the stream advances
+        session.setCacheMode(CacheMode.IGNORE);
+        try (Stream<Guest> guests = guestRepository.streamAll()) {
+            long[] streamed = {0};
+            guests.forEach(guest -> {
+                consumer.accept(guestMapper.toDTO(guest));
+                if (++streamed[0] % FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            });
+        } finally {
+            session.setCacheMode(cacheMode);
+        }
     }
 
     public GuestDTO getGuestById(Long id) {
@@ -29,23 +71,32 @@ public class GuestService {
                 .collect(Collectors.toList());
     }
 
+    public List<GuestDTO> searchGuests(String query, int limit) {
+        return guestSearchIndex.search(query, limit);
+    }
+
     private Guest findGuestById(Long id) {
         return guestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Guest with id " + id + " not found."));
     }
 
     public GuestDTO createGuest(GuestRequestDTO request) {
-        return guestMapper.toDTO(guestRepository.saveAndFlush(guestMapper.toGuest(request)));
+        GuestDTO guest = guestMapper.toDTO(guestRepository.saveAndFlush(guestMapper.toGuest(request)));
+        guestSearchIndex.put(guest.getId(), guest.getName());
+        return guest;
     }
 
     public GuestDTO updateGuest(Long id, GuestRequestDTO request) {
         Guest guest = findGuestById(id);
         guest.setName(request.getName());
-        return guestMapper.toDTO(guestRepository.saveAndFlush(guest));
+        GuestDTO updated = guestMapper.toDTO(guestRepository.saveAndFlush(guest));
+        guestSearchIndex.put(updated.getId(), updated.getName());
+        return updated;
     }
 
     public void deleteGuest(Long id) {
         findGuestById(id);
         guestRepository.deleteById(id);
+        guestSearchIndex.remove(id);
     }
 }
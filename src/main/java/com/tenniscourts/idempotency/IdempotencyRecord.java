@@ -0,0 +1,52 @@
+package com.tenniscourts.idempotency;
+
+import com.tenniscourts.config.persistence.BaseEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/**
+ * Response stored for an Idempotency-Key, so replays survive restarts and cache evictions.
+ */
+@Entity
+@Table
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class IdempotencyRecord extends BaseEntity<Long> {
+
+    @Column(unique = true)
+    @NotNull
+    private String idempotencyKey;
+
+    @Column
+    @NotNull
+    private String scope;
+
+    @Column
+    private int statusCode;
+
+    @Column
+    private String location;
+
+    @Lob
+    @Column
+    private String body;
+
+    @Column
+    @NotNull
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,217 @@
+package com.tenniscourts.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tenniscourts.exceptions.AlreadyExistsEntityException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Executes a request at most once per Idempotency-Key and replays its response afterwards.
+ * <p>
+ * Responses live in a bounded, expiring in-memory cache backed by the idempotency_record
+ * table. The record claims the key before the request runs and is written in the request's
+ * own transaction, so the key is stored if and only if the request committed. Concurrent
+ * requests with the same key on this node wait for the first one, on another node they lose
+ * the claim and replay the stored response. Failed executions are not stored, so a retry
+ * after an error runs again.
+ */
+@Service
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final Duration ttl;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, StoredResponse> responses;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              Clock clock,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${tenniscourts.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${tenniscourts.idempotency.max-entries:10000}") long maxEntries) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.ttl = ttl;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Runs the action unless a response is already known for the key, in which case that
+     * response is replayed.
+     *
+     * @param idempotencyKey the client supplied key; without one the action simply runs
+     * @param scope          identifies the request, a key reused for another request is rejected
+     * @param bodyType       type the stored body is read back as
+     * @param action         the request to execute
+     */
+    public <T> ResponseEntity<T> execute(String idempotencyKey, String scope, Class<T> bodyType,
+                                         Supplier<ResponseEntity<T>> action) {
+        if (Objects.isNull(idempotencyKey)) {
+            return action.get();
+        }
+
+        StoredResponse stored = responses.getIfPresent(idempotencyKey);
+        if (stored != null) {
+            return replay(stored, idempotencyKey, scope, bodyType);
+        }
+
+        CompletableFuture<StoredResponse> execution = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(idempotencyKey, execution);
+        if (running != null) {
+            return replay(await(running), idempotencyKey, scope, bodyType);
+        }
+
+        try {
+            stored = findStored(idempotencyKey);
+            if (stored == null) {
+                StoredResponse[] executed = new StoredResponse[1];
+                ResponseEntity<T> response = transactionTemplate.execute(status -> {
+                    IdempotencyRecord record = claim(idempotencyKey, scope);
+                    if (record == null) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    ResponseEntity<T> actionResponse = action.get();
+                    executed[0] = store(record, actionResponse);
+                    return actionResponse;
+                });
+                if (executed[0] != null) {
+                    responses.put(idempotencyKey, executed[0]);
+                    execution.complete(executed[0]);
+                    return response;
+                }
+                // claimed by another node, its response is stored once its request committed
+                stored = findStored(idempotencyKey);
+                if (stored == null) {
+                    throw new AlreadyExistsEntityException("A request with Idempotency-Key " + idempotencyKey + " is still in progress.");
+                }
+            }
+            responses.put(idempotencyKey, stored);
+            execution.complete(stored);
+            return replay(stored, idempotencyKey, scope, bodyType);
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(idempotencyKey, execution);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tenniscourts.idempotency.purge-delay:3600000}")
+    public void purgeExpired() {
+        idempotencyRecordRepository.deleteExpired(LocalDateTime.now(clock));
+    }
+
+    private StoredResponse findStored(String idempotencyKey) {
+        return idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(idempotencyKey, LocalDateTime.now(clock))
+                .map(record -> new StoredResponse(record.getScope(), record.getStatusCode(), record.getLocation(), record.getBody()))
+                .orElse(null);
+    }
+
+    /**
+     * Inserts the record of the key in the current transaction.
+     *
+     * @return the record, or null if another node already claimed the key
+     */
+    private IdempotencyRecord claim(String idempotencyKey, String scope) {
+        IdempotencyRecord record = IdempotencyRecord.builder()
+                .idempotencyKey(idempotencyKey)
+                .scope(scope)
+                .expiresAt(LocalDateTime.now(clock).plus(ttl))
+                .build();
+        try {
+            idempotencyRecordRepository.saveAndFlush(record);
+            return record;
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the response to the claimed record, it is flushed when the transaction commits.
+     */
+    private StoredResponse store(IdempotencyRecord record, ResponseEntity<?> response) {
+        StoredResponse stored = new StoredResponse(record.getScope(),
+                response.getStatusCodeValue(),
+                response.getHeaders().getFirst(HttpHeaders.LOCATION),
+                response.hasBody() ? write(response.getBody()) : null);
+
+        record.setStatusCode(stored.getStatusCode());
+        record.setLocation(stored.getLocation());
+        record.setBody(stored.getBody());
+        return stored;
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse stored, String idempotencyKey, String scope, Class<T> bodyType) {
+        if (!stored.getScope().equals(scope)) {
+            throw new IllegalArgumentException("Idempotency-Key " + idempotencyKey + " was already used for another request.");
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.valueOf(stored.getStatusCode()))
+                .header(REPLAYED_HEADER, Boolean.TRUE.toString());
+        if (stored.getLocation() != null) {
+            builder.header(HttpHeaders.LOCATION, stored.getLocation());
+        }
+        return stored.getBody() != null ? builder.body(read(stored.getBody(), bodyType)) : builder.build();
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private String write(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T read(String body, Class<T> bodyType) {
+        try {
+            return objectMapper.readValue(body, bodyType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.tenniscourts.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What is replayed for a request already executed under the same Idempotency-Key.
+ */
+@Getter
+@AllArgsConstructor
+class StoredResponse {
+
+    private final String scope;
+
+    private final int statusCode;
+
+    private final String location;
+
+    private final String body;
+}
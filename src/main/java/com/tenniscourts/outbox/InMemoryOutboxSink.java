@@ -0,0 +1,32 @@
+package com.tenniscourts.outbox;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Keeps delivered events in an in-process queue, for tests and local consumers.
+ */
+@Component
+@ConditionalOnProperty(name = "tenniscourts.outbox.sink", havingValue = "memory")
+public class InMemoryOutboxSink implements OutboxSink {
+    private final BlockingQueue<OutboxEventDTO> events = new LinkedBlockingQueue<>();
+
+    @Override
+    public void deliver(List<OutboxEventDTO> events) {
+        this.events.addAll(events);
+    }
+
+    /**
+     * Removes and returns the events delivered so far, oldest first.
+     */
+    public List<OutboxEventDTO> drain() {
+        List<OutboxEventDTO> drained = new ArrayList<>();
+        events.drainTo(drained);
+        return drained;
+    }
+}
@@ -0,0 +1,47 @@
+package com.tenniscourts.outbox;
+
+import com.tenniscourts.config.persistence.BaseEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Domain event written in the transaction of the change it describes, waiting for
+ * {@link OutboxRelay} to deliver it. Delivered events are deleted.
+ */
+@Entity
+@Table
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class OutboxEvent extends BaseEntity<Long> {
+
+    @Column
+    @NotNull
+    private String aggregateType;
+
+    @Column
+    @NotNull
+    private Long aggregateId;
+
+    @Column
+    @NotNull
+    private String eventType;
+
+    @Lob
+    @Column
+    @NotNull
+    private String payload;
+}
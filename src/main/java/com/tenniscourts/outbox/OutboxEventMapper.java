@@ -0,0 +1,15 @@
+package com.tenniscourts.outbox;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface OutboxEventMapper {
+
+    @Mapping(target = "createdAt", source = "dateCreate")
+    OutboxEventDTO map(OutboxEvent source);
+
+    List<OutboxEventDTO> map(List<OutboxEvent> source);
+}
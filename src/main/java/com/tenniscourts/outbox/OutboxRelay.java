@@ -0,0 +1,96 @@
+package com.tenniscourts.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers outbox events to the {@link OutboxSink} in batches, oldest first.
+ * <p>
+ * Each batch is read, delivered and deleted in one transaction holding locks on its rows, so
+ * a failed delivery leaves the batch in the outbox for the next run and a crash after delivery
+ * delivers it again: at least once, in the order the events were written. Keeps relaying while
+ * batches come back full.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxEventMapper outboxEventMapper;
+    private final OutboxSink outboxSink;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final Counter relayedEvents;
+    private final Counter failedBatches;
+    private final Timer batchTimer;
+    private final AtomicReference<LocalDateTime> oldestPending = new AtomicReference<>();
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxEventMapper outboxEventMapper,
+                       OutboxSink outboxSink,
+                       PlatformTransactionManager transactionManager,
+                       Clock clock,
+                       MeterRegistry meterRegistry,
+                       @Value("${tenniscourts.outbox.batch:500}") int batchSize) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxEventMapper = outboxEventMapper;
+        this.outboxSink = outboxSink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+
+        this.relayedEvents = Counter.builder("outbox.relayed")
+                .description("Outbox events delivered to the sink")
+                .register(meterRegistry);
+        this.failedBatches = Counter.builder("outbox.relay.failures")
+                .description("Outbox batches the sink failed to take, retried on the next run")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox.relay.batch")
+                .description("Time to read, deliver and delete one batch of outbox events")
+                .register(meterRegistry);
+        meterRegistry.gauge("outbox.lag.seconds", oldestPending,
+                current -> current.get() == null ? 0 : Duration.between(current.get(), LocalDateTime.now(clock)).getSeconds());
+    }
+
+    @Scheduled(fixedDelayString = "${tenniscourts.outbox.relay-delay:1000}")
+    public void relay() {
+        int relayed;
+        do {
+            try {
+                relayed = batchTimer.record(() -> transactionTemplate.execute(status -> relayBatch()));
+            } catch (RuntimeException e) {
+                failedBatches.increment();
+                log.warn("Could not relay outbox events, retrying on the next run.", e);
+                return;
+            }
+            relayedEvents.increment(relayed);
+        } while (relayed == batchSize);
+        oldestPending.set(null);
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        oldestPending.set(events.get(0).getDateCreate());
+
+        outboxSink.deliver(outboxEventMapper.map(events));
+        outboxEventRepository.deleteByIds(events.stream().map(OutboxEvent::getId).collect(Collectors.toList()));
+        return events.size();
+    }
+}
@@ -0,0 +1,14 @@
+package com.tenniscourts.outbox;
+
+import java.util.List;
+
+/**
+ * Where {@link OutboxRelay} delivers events, in the order they were written. An event is only
+ * deleted from the outbox once deliver returned, so a sink must tolerate receiving an event
+ * again after a failure or a crash, and must throw when it cannot take the whole batch.
+ * Select one with tenniscourts.outbox.sink.
+ */
+public interface OutboxSink {
+
+    void deliver(List<OutboxEventDTO> events);
+}
@@ -0,0 +1,84 @@
+package com.tenniscourts.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tenniscourts.reservations.NoShowSweptEvent;
+import com.tenniscourts.reservations.ReservationEvent;
+import com.tenniscourts.reservations.ReservationEventType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.transaction.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes reservation events to the outbox in the transaction that publishes them, so an event
+ * is relayed if and only if its change committed.
+ */
+@Component
+@AllArgsConstructor
+public class ReservationOutboxListener {
+    static final String RESERVATION = "Reservation";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @EventListener
+    @Transactional
+    public void onReservationEvent(ReservationEvent event) {
+        save(RESERVATION, event.getReservationId(), event.getType().name(), event);
+    }
+
+    /**
+     * Writes an event for each of the reservations, like the changes made one at a time.
+     */
+    @EventListener
+    @Transactional
+    public void onNoShowSwept(NoShowSweptEvent event) {
+        List<OutboxEvent> outboxEvents = new ArrayList<>(event.getReservationIds().size());
+        for (Long reservationId : event.getReservationIds()) {
+            outboxEvents.add(outboxEvent(RESERVATION, reservationId, ReservationEventType.NO_SHOW.name(),
+                    new NoShowPayload(reservationId, event.getTennisCourtId(), event.getDate(), event.getReservationRefundValue())));
+        }
+        outboxEventRepository.saveAll(outboxEvents);
+    }
+
+    private void save(String aggregateType, Long aggregateId, String eventType, Object event) {
+        outboxEventRepository.save(outboxEvent(aggregateType, aggregateId, eventType, event));
+    }
+
+    private OutboxEvent outboxEvent(String aggregateType, Long aggregateId, String eventType, Object event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + event, e);
+        }
+        return OutboxEvent.builder()
+                .aggregateType(aggregateType)
+                .aggregateId(aggregateId)
+                .eventType(eventType)
+                .payload(payload)
+                .build();
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    static class NoShowPayload {
+
+        private final Long reservationId;
+
+        private final Long tennisCourtId;
+
+        private final LocalDate date;
+
+        private final BigDecimal refundValue;
+    }
+}
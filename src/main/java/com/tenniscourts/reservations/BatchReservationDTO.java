@@ -0,0 +1,22 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class BatchReservationDTO {
+
+    private boolean booked;
+
+    private Long guestId;
+
+    private List<ReservationSlotResultDTO> slots;
+
+}
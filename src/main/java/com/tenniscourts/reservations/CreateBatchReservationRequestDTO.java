@@ -0,0 +1,24 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class CreateBatchReservationRequestDTO {
+
+    @NotNull
+    private Long guestId;
+
+    @NotEmpty
+    private List<@NotNull Long> scheduleIds;
+
+}
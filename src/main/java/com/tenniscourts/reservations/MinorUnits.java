@@ -0,0 +1,22 @@
+package com.tenniscourts.reservations;
+
+import java.math.BigDecimal;
+
+/**
+ * Converts reservation amounts between their {@link BigDecimal} representation and cents.
+ */
+final class MinorUnits {
+
+    private static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+}
@@ -0,0 +1,152 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.audit.CustomAuditEntityListener;
+import com.tenniscourts.config.persistence.JobWatermark;
+import com.tenniscourts.config.persistence.JobWatermarkRepository;
+import com.tenniscourts.config.persistence.QueryResults;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Moves READY_TO_PLAY reservations whose schedule ended into NO_SHOW (README story 10).
+ * <p>
+ * Works through time windows of schedule end times, each one a set-based bulk update in its
+ * own transaction together with the new watermark, so a restart resumes after the last window
+ * that committed, and the rollups count a window once it committed. The bulk update bypasses the entity callbacks, so the
+ * swept reservations are journaled explicitly. Each window starts by locking the watermark, so when
+ * several instances sweep at once a window is swept and published by only one of them.
+ */
+@Slf4j
+@Component
+public class NoShowSweeper {
+    static final String WATERMARK_NAME = "no-show-sweeper";
+
+    private final ReservationRepository reservationRepository;
+    private final JobWatermarkRepository jobWatermarkRepository;
+    private final RefundPolicy refundPolicy;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final CustomAuditEntityListener customAuditEntityListener;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final Duration chunk;
+    private final Duration grace;
+
+    private final Counter sweptReservations;
+    private final Timer chunkTimer;
+    private final AtomicReference<LocalDateTime> watermark = new AtomicReference<>();
+
+    public NoShowSweeper(ReservationRepository reservationRepository,
+                         JobWatermarkRepository jobWatermarkRepository,
+                         RefundPolicy refundPolicy,
+                         ApplicationEventPublisher applicationEventPublisher,
+                         CustomAuditEntityListener customAuditEntityListener,
+                         PlatformTransactionManager transactionManager,
+                         Clock clock,
+                         MeterRegistry meterRegistry,
+                         @Value("${tenniscourts.no-show-sweeper.chunk:PT6H}") Duration chunk,
+                         @Value("${tenniscourts.no-show-sweeper.grace:PT15M}") Duration grace) {
+        this.reservationRepository = reservationRepository;
+        this.jobWatermarkRepository = jobWatermarkRepository;
+        this.refundPolicy = refundPolicy;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.customAuditEntityListener = customAuditEntityListener;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.chunk = chunk;
+        this.grace = grace;
+
+        this.sweptReservations = Counter.builder("reservations.no_show.swept")
+                .description("Reservations moved to NO_SHOW")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("reservations.no_show.chunk")
+                .description("Time to sweep one window of schedules")
+                .register(meterRegistry);
+        meterRegistry.gauge("reservations.no_show.lag.seconds", watermark,
+                current -> current.get() == null ? 0 : Duration.between(current.get(), LocalDateTime.now(clock)).getSeconds());
+    }
+
+    @Scheduled(fixedDelayString = "${tenniscourts.no-show-sweeper.delay:60000}")
+    public void sweep() {
+        LocalDateTime horizon = LocalDateTime.now(clock).minus(grace);
+        LocalDateTime from = loadWatermark(horizon);
+
+        while (from.isBefore(horizon)) {
+            LocalDateTime to = from.plus(chunk).isBefore(horizon) ? from.plus(chunk) : horizon;
+            LocalDateTime windowStart = from;
+            int swept = chunkTimer.record(() -> transactionTemplate.execute(status -> sweepWindow(windowStart, to)));
+            sweptReservations.increment(swept);
+            if (swept > 0) {
+                log.info("Moved {} reservations ending between {} and {} to NO_SHOW", swept, windowStart, to);
+            }
+            from = to;
+        }
+    }
+
+    private LocalDateTime loadWatermark(LocalDateTime horizon) {
+        LocalDateTime current = jobWatermarkRepository.findByName(WATERMARK_NAME)
+                .map(JobWatermark::getWatermark)
+                .orElseGet(() -> {
+                    LocalDateTime earliest = reservationRepository.findEarliestEndDateTime(ReservationStatus.READY_TO_PLAY);
+                    return earliest != null && earliest.isBefore(horizon) ? earliest : horizon;
+                });
+        watermark.set(current);
+        return current;
+    }
+
+    int sweepWindow(LocalDateTime from, LocalDateTime to) {
+        JobWatermark jobWatermark = jobWatermarkRepository.findLockedByName(WATERMARK_NAME)
+                .orElseGet(() -> JobWatermark.builder().name(WATERMARK_NAME).build());
+        LocalDateTime swept = jobWatermark.getWatermark();
+        if (swept != null && !swept.isBefore(to)) {
+            // another instance swept this window while we waited for the lock
+            watermark.set(swept);
+            return 0;
+        }
+        LocalDateTime windowStart = swept != null && swept.isAfter(from) ? swept : from;
+
+        BigDecimal refundValue = MinorUnits.toAmount(
+                refundPolicy.noShowRefundCents(MinorUnits.toCents(ReservationService.RESERVATION_DEPOSIT)));
+        int updated = reservationRepository.updateStatusEndingBetween(ReservationStatus.READY_TO_PLAY,
+                ReservationStatus.NO_SHOW, refundValue, windowStart, to);
+
+        // only the sweeper moves reservations to NO_SHOW, so these are exactly the rows just updated
+        List<Long> sweptIds = new ArrayList<>();
+        Map<Long, Map<LocalDate, List<Long>>> sweptIdsByCourtAndDate = new TreeMap<>();
+        for (Object[] row : reservationRepository.findCourtAndDateEndingBetween(ReservationStatus.NO_SHOW, windowStart, to)) {
+            Long reservationId = ((Number) row[0]).longValue();
+            sweptIds.add(reservationId);
+            sweptIdsByCourtAndDate.computeIfAbsent(((Number) row[1]).longValue(), tennisCourtId -> new TreeMap<>())
+                    .computeIfAbsent(QueryResults.toLocalDate(row[2]), date -> new ArrayList<>())
+                    .add(reservationId);
+        }
+        if (!sweptIds.isEmpty()) {
+            customAuditEntityListener.bulkUpdated(Reservation.class, sweptIds);
+        }
+        sweptIdsByCourtAndDate.forEach((tennisCourtId, days) -> days.forEach((date, reservationIds) ->
+                applicationEventPublisher.publishEvent(new NoShowSweptEvent(tennisCourtId, date, reservationIds, refundValue))));
+
+        jobWatermark.setWatermark(to);
+        jobWatermarkRepository.save(jobWatermark);
+        watermark.set(to);
+        return updated;
+    }
+}
@@ -0,0 +1,44 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Published by {@link NoShowSweeper} for every tennis court and day of a chunk it moved to
+ * NO_SHOW, inside the transaction of the bulk update and after it.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class NoShowSweptEvent {
+
+    private final Long tennisCourtId;
+
+    private final LocalDate date;
+
+    /**
+     * The reservations moved to NO_SHOW, by id.
+     */
+    private final List<Long> reservationIds;
+
+    /**
+     * The refund of each of the reservations.
+     */
+    private final BigDecimal reservationRefundValue;
+
+    public long getReservations() {
+        return reservationIds.size();
+    }
+
+    /**
+     * The refunds of all the reservations.
+     */
+    public BigDecimal getRefundValue() {
+        return reservationRefundValue.multiply(BigDecimal.valueOf(reservationIds.size()));
+    }
+}
@@ -0,0 +1,26 @@
+package com.tenniscourts.reservations;
+
+import java.time.LocalDateTime;
+
+/**
+ * Decides how much of a reservation value goes back to the guest. Amounts are in cents.
+ */
+public interface RefundPolicy {
+
+    /**
+     * Refund for a reservation cancelled or rescheduled now.
+     *
+     * @param valueCents    the reservation value in cents
+     * @param startDateTime when the reserved schedule starts
+     * @return the refund in cents
+     */
+    long refundCents(long valueCents, LocalDateTime startDateTime);
+
+    /**
+     * Refund for a reservation the guest did not show up for.
+     *
+     * @param valueCents the reservation value in cents
+     * @return the refund in cents
+     */
+    long noShowRefundCents(long valueCents);
+}
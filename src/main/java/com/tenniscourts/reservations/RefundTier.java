@@ -0,0 +1,18 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Refund granted when a reservation is given up at least {@code minimumNotice} before it starts.
+ */
+@Getter
+@AllArgsConstructor(staticName = "of")
+public class RefundTier {
+
+    private final Duration minimumNotice;
+
+    private final int refundPercent;
+}
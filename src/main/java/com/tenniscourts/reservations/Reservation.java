@@ -11,15 +11,24 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.ManyToOne;
-import javax.persistence.OneToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
 
 
 @Entity
-@Table
+@NamedEntityGraph(name = Reservation.WITH_SCHEDULE,
+        attributeNodes = @NamedAttributeNode(value = "schedule", subgraph = "schedule"),
+        subgraphs = @NamedSubgraph(name = "schedule", attributeNodes = @NamedAttributeNode("tennisCourt")))
+@Table(uniqueConstraints = @UniqueConstraint(name = Reservation.ACTIVE_SCHEDULE_CONSTRAINT, columnNames = "activeScheduleId"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -28,10 +37,14 @@ import java.math.BigDecimal;
 @Builder
 public class Reservation extends BaseEntity<Long> {
 
-    @OneToOne
+    public static final String WITH_SCHEDULE = "Reservation.withSchedule";
+
+    public static final String ACTIVE_SCHEDULE_CONSTRAINT = "uk_reservation_active_schedule";
+
+    @ManyToOne(fetch = FetchType.LAZY)
     private Guest guest;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @NotNull
     private Schedule schedule;
 
@@ -42,4 +55,16 @@ public class Reservation extends BaseEntity<Long> {
     private ReservationStatus reservationStatus = ReservationStatus.READY_TO_PLAY;
 
     private BigDecimal refundValue;
+
+    /**
+     * Mirrors the schedule id while the reservation is active and is null otherwise, so the
+     * unique constraint allows a single active reservation per schedule.
+     */
+    private Long activeScheduleId;
+
+    @PrePersist
+    @PreUpdate
+    void syncActiveScheduleId() {
+        this.activeScheduleId = ReservationStatus.READY_TO_PLAY.equals(reservationStatus) ? schedule.getId() : null;
+    }
 }
@@ -1,17 +1,26 @@
 package com.tenniscourts.reservations;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tenniscourts.config.BaseRestController;
 import com.tenniscourts.exceptions.ErrorDetails;
+import com.tenniscourts.idempotency.IdempotencyService;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 
 @RequiredArgsConstructor
 @RestController
@@ -19,19 +28,49 @@ import javax.validation.Valid;
 @Validated
 public class ReservationController extends BaseRestController {
     private final ReservationService reservationService;
+    private final ReservationHistoryService reservationHistoryService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
 
     @ApiOperation(value = "Book a reservation", consumes = "application/json")
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "Successfully booked a reservation"),
             @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
-            @ApiResponse(code = 400, message = "Schedule not found", response = ErrorDetails.class),
+            @ApiResponse(code = 404, message = "Guest or schedule not found", response = ErrorDetails.class),
             @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 409, message = "Schedule already booked", response = ErrorDetails.class),
             @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
     })
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping
-    public ResponseEntity<Void> bookReservation(@RequestBody @Valid CreateReservationRequestDTO createReservationRequestDTO) {
-        return ResponseEntity.created(locationByEntity(reservationService.bookReservation(createReservationRequestDTO).getId())).build();
+    public ResponseEntity<Void> bookReservation(@RequestBody @Valid CreateReservationRequestDTO createReservationRequestDTO,
+                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey,
+                "book:" + createReservationRequestDTO.getGuestId() + ":" + createReservationRequestDTO.getScheduleId(), Void.class,
+                () -> ResponseEntity.created(locationByEntity(reservationService.bookReservation(createReservationRequestDTO).getId())).build());
+    }
+
+    @ApiOperation(value = "Book reservations for one guest on several schedules, all or nothing",
+            produces = "application/json", consumes = "application/json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "Successfully booked all reservations", response = BatchReservationDTO.class),
+            @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
+            @ApiResponse(code = 404, message = "Guest not found", response = ErrorDetails.class),
+            @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 409, message = "Nothing booked, see the status of each slot", response = BatchReservationDTO.class),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<BatchReservationDTO> bookReservations(@RequestBody @Valid CreateBatchReservationRequestDTO createBatchReservationRequestDTO,
+                                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey,
+                "book:" + createBatchReservationRequestDTO.getGuestId() + ":" + createBatchReservationRequestDTO.getScheduleIds(), BatchReservationDTO.class,
+                () -> {
+                    BatchReservationDTO batch = reservationService.bookReservations(createBatchReservationRequestDTO);
+                    return batch.isBooked() ?
+                            ResponseEntity.status(HttpStatus.CREATED).body(batch) :
+                            ResponseEntity.status(HttpStatus.CONFLICT).body(batch);
+                });
     }
 
     @ApiOperation(value = "Return a reservation",
@@ -48,6 +87,43 @@ public class ReservationController extends BaseRestController {
         return ResponseEntity.ok(reservationService.findReservation(reservationId));
     }
 
+    @ApiOperation(value = "Stream the history of reservations whose schedule starts between dates",
+            notes = "Ordered by schedule start and reservation id. To resume, pass the startDateTime and id " +
+                    "of the last reservation received as afterStartDateTime and afterId.",
+            produces = "application/json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully streamed the reservations", response = ReservationHistoryDTO.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
+            @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @GetMapping(value = "/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> findReservationHistory(
+            @RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "afterStartDateTime", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterStartDateTime,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "limit", defaultValue = "" + Long.MAX_VALUE) long limit) {
+        if ((afterStartDateTime == null) != (afterId == null)) {
+            throw new IllegalArgumentException("Both afterStartDateTime and afterId must be given to resume the history.");
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                reservationHistoryService.streamHistory(from, to, afterStartDateTime, afterId, limit, reservation -> {
+                    try {
+                        generator.writeObject(reservation);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     @ApiOperation(value = "Cancel a reservation",
             produces = "application/json", consumes = "application/json")
     @ApiResponses(value = {
@@ -58,8 +134,10 @@ public class ReservationController extends BaseRestController {
             @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
     })
     @PutMapping("/{id}/cancel")
-    public ResponseEntity<ReservationDTO> cancelReservation(@PathVariable(value = "id") @Valid Long reservationId) {
-        return ResponseEntity.ok(reservationService.cancelReservation(reservationId));
+    public ResponseEntity<ReservationDTO> cancelReservation(@PathVariable(value = "id") @Valid Long reservationId,
+                                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "cancel:" + reservationId, ReservationDTO.class,
+                () -> ResponseEntity.ok(reservationService.cancelReservation(reservationId)));
     }
 
     @ApiOperation(value = "Reschedule a reservation",
@@ -73,7 +151,9 @@ public class ReservationController extends BaseRestController {
     })
     @PutMapping("/{id}/reschedule")
     public ResponseEntity<ReservationDTO> rescheduleReservation(@PathVariable(value = "id") @Valid Long reservationId,
-                                                                @RequestParam(value = "schedule") @Valid Long scheduleId) {
-        return ResponseEntity.ok(reservationService.rescheduleReservation(reservationId, scheduleId));
+                                                                @RequestParam(value = "schedule") @Valid Long scheduleId,
+                                                                @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "reschedule:" + reservationId + ":" + scheduleId, ReservationDTO.class,
+                () -> ResponseEntity.ok(reservationService.rescheduleReservation(reservationId, scheduleId)));
     }
 }
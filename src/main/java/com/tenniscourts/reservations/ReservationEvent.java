@@ -0,0 +1,44 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@link ReservationService} inside the transaction that changes a reservation.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ReservationEvent {
+
+    private final ReservationEventType type;
+
+    private final Long reservationId;
+
+    private final Long guestId;
+
+    private final Long scheduleId;
+
+    private final Long tennisCourtId;
+
+    private final LocalDateTime startDateTime;
+
+    private final BigDecimal value;
+
+    private final BigDecimal refundValue;
+
+    public static ReservationEvent of(ReservationEventType type, Reservation reservation) {
+        return new ReservationEvent(type,
+                reservation.getId(),
+                reservation.getGuest() != null ? reservation.getGuest().getId() : null,
+                reservation.getSchedule().getId(),
+                reservation.getSchedule().getTennisCourt().getId(),
+                reservation.getSchedule().getStartDateTime(),
+                reservation.getValue(),
+                reservation.getRefundValue());
+    }
+}
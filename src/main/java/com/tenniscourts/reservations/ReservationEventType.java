@@ -0,0 +1,8 @@
+package com.tenniscourts.reservations;
+
+public enum ReservationEventType {
+  BOOKED,
+  CANCELLED,
+  RESCHEDULED,
+  NO_SHOW
+}
@@ -0,0 +1,37 @@
+package com.tenniscourts.reservations;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class ReservationHistoryDTO {
+
+    private Long id;
+
+    private Long guestId;
+
+    private Long scheduleId;
+
+    private Long tennisCourtId;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime startDateTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime endDateTime;
+
+    private String reservationStatus;
+
+    private BigDecimal value;
+
+    private BigDecimal refundValue;
+}
@@ -0,0 +1,47 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Service
+@AllArgsConstructor
+public class ReservationHistoryService {
+    static final int FETCH_SIZE = 500;
+
+    private final ReservationRepository reservationRepository;
+    private final ReservationMapper reservationMapper;
+    private final EntityManager entityManager;
+    private final Clock clock;
+
+    /**
+     * Hands every reservation whose schedule starts in [from, to) to the consumer, ordered by
+     * schedule start and id, resuming after the given (start, id) cursor when one is given.
+     * Without an upper bound the history ends now.
+     * The persistence context is cleared every {@value #FETCH_SIZE} rows, so memory does not
+     * grow with the size of the range.
+     */
+    @Transactional
+    public void streamHistory(LocalDateTime from, LocalDateTime to, LocalDateTime afterStartDateTime, Long afterId,
+                              long limit, Consumer<ReservationHistoryDTO> consumer) {
+        LocalDateTime until = to != null ? to : LocalDateTime.now(clock);
+        LocalDateTime cursorStartDateTime = afterStartDateTime != null ? afterStartDateTime : from;
+        Long cursorId = afterId != null ? afterId : 0L;
+
+        try (Stream<Reservation> reservations = reservationRepository.streamHistory(from, until, cursorStartDateTime, cursorId)) {
+            long[] streamed = {0};
+            reservations.limit(limit).forEach(reservation -> {
+                consumer.accept(reservationMapper.toHistory(reservation));
+                if (++streamed[0] % FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
+    }
+}
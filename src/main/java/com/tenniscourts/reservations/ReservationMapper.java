@@ -7,6 +7,7 @@ import org.mapstruct.Mapping;
 @Mapper(componentModel = "spring")
 public interface ReservationMapper {
 
+    @Mapping(target = "activeScheduleId", ignore = true)
     Reservation map(ReservationDTO source);
 
     @InheritInverseConfiguration
@@ -15,4 +16,11 @@ public interface ReservationMapper {
     @Mapping(target = "guest.id", source = "guestId")
     @Mapping(target = "schedule.id", source = "scheduleId")
     Reservation map(CreateReservationRequestDTO source);
+
+    @Mapping(target = "guestId", source = "guest.id")
+    @Mapping(target = "scheduleId", source = "schedule.id")
+    @Mapping(target = "tennisCourtId", source = "schedule.tennisCourt.id")
+    @Mapping(target = "startDateTime", source = "schedule.startDateTime")
+    @Mapping(target = "endDateTime", source = "schedule.endDateTime")
+    ReservationHistoryDTO toHistory(Reservation source);
 }
@@ -1,15 +1,92 @@
 package com.tenniscourts.reservations;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
 
+    @Override
+    @EntityGraph(Reservation.WITH_SCHEDULE)
+    Optional<Reservation> findById(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Reservation> findLockedById(Long id);
+
     List<Reservation> findBySchedule_Id(Long scheduleId);
 
+    boolean existsBySchedule_IdAndReservationStatus(Long scheduleId, ReservationStatus reservationStatus);
+
+    @Query("select r.schedule.id from Reservation r where r.schedule.id in :scheduleIds and r.reservationStatus = :reservationStatus")
+    Set<Long> findReservedScheduleIds(@Param("scheduleIds") Collection<Long> scheduleIds,
+                                      @Param("reservationStatus") ReservationStatus reservationStatus);
+
+    @Query("select r.schedule.id from Reservation r where r.schedule.tennisCourt.id = :tennisCourtId " +
+            "and r.schedule.startDateTime >= :from and r.reservationStatus = :reservationStatus")
+    Set<Long> findReservedScheduleIdsByTennisCourt(@Param("tennisCourtId") Long tennisCourtId,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("reservationStatus") ReservationStatus reservationStatus);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + ReservationHistoryService.FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select r from Reservation r join fetch r.schedule s join fetch s.tennisCourt left join fetch r.guest " +
+            "where s.startDateTime >= :from and s.startDateTime < :to " +
+            "and (s.startDateTime > :afterStartDateTime or (s.startDateTime = :afterStartDateTime and r.id > :afterId)) " +
+            "order by s.startDateTime, r.id")
+    Stream<Reservation> streamHistory(@Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("afterStartDateTime") LocalDateTime afterStartDateTime,
+                                      @Param("afterId") Long afterId);
+
     List<Reservation> findByReservationStatusAndSchedule_StartDateTimeGreaterThanEqualAndSchedule_EndDateTimeLessThanEqual(ReservationStatus reservationStatus, LocalDateTime startDateTime, LocalDateTime endDateTime);
 
+    @Query("select min(s.endDateTime) from Reservation r join r.schedule s where r.reservationStatus = :reservationStatus")
+    LocalDateTime findEarliestEndDateTime(@Param("reservationStatus") ReservationStatus reservationStatus);
+
+    /**
+     * The id, tennis court and day of the reservations in the status whose schedule ends in
+     * [from, to), by id.
+     */
+    @Query("select r.id, s.tennisCourt.id, cast(s.startDateTime as date) from Reservation r join r.schedule s " +
+            "where r.reservationStatus = :reservationStatus and s.endDateTime >= :from and s.endDateTime < :to " +
+            "order by r.id")
+    List<Object[]> findCourtAndDateEndingBetween(@Param("reservationStatus") ReservationStatus reservationStatus,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to);
+
+    /**
+     * Bypasses the entity callbacks, so neither stamps the update columns nor journals the rows,
+     * the caller reports them to {@link com.tenniscourts.audit.CustomAuditEntityListener#bulkUpdated}.
+     */
+    @Modifying
+    @Query("update Reservation r set r.reservationStatus = :newStatus, r.activeScheduleId = null, " +
+            "r.value = r.value - :refundValue, r.refundValue = :refundValue " +
+            "where r.reservationStatus = :reservationStatus " +
+            "and r.schedule.id in (select s.id from Schedule s where s.endDateTime >= :from and s.endDateTime < :to)")
+    int updateStatusEndingBetween(@Param("reservationStatus") ReservationStatus reservationStatus,
+                                  @Param("newStatus") ReservationStatus newStatus,
+                                  @Param("refundValue") BigDecimal refundValue,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+
 //    List<Reservation> findByStartDateTimeGreaterThanEqualAndEndDateTimeLessThanEqualAndTennisCourt(LocalDateTime startDateTime, LocalDateTime endDateTime, TennisCourt tennisCourt);
 }
@@ -1,21 +1,165 @@
 package com.tenniscourts.reservations;
 
+import com.tenniscourts.exceptions.AlreadyExistsEntityException;
 import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
 import lombok.AllArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import javax.transaction.Transactional;
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class ReservationService {
+    public static final BigDecimal RESERVATION_DEPOSIT = BigDecimal.TEN;
+
     private final ReservationRepository reservationRepository;
     private final ReservationMapper reservationMapper;
+    private final GuestRepository guestRepository;
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleOccupancyIndex scheduleOccupancyIndex;
+    private final RefundPolicy refundPolicy;
+    private final Clock clock;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
+    @Transactional
     public ReservationDTO bookReservation(CreateReservationRequestDTO createReservationRequestDTO) {
-        throw new UnsupportedOperationException();
+        Guest guest = findGuest(createReservationRequestDTO.getGuestId());
+        Schedule schedule = findSchedule(createReservationRequestDTO.getScheduleId());
+        return reservationMapper.map(book(guest, schedule));
+    }
+
+    private Reservation book(Guest guest, Schedule schedule) {
+        validateBooking(schedule);
+
+        if (!scheduleOccupancyIndex.tryClaim(schedule)) {
+            throw new AlreadyExistsEntityException("Schedule with id " + schedule.getId() + " is already booked.");
+        }
+
+        try {
+            Reservation reservation = reservationRepository.saveAndFlush(newReservation(guest, schedule));
+            publish(ReservationEventType.BOOKED, reservation);
+            return reservation;
+        } catch (DataIntegrityViolationException e) {
+            throw alreadyBookedOrRethrow(e, "Schedule with id " + schedule.getId() + " is already booked.");
+        }
+    }
+
+    /**
+     * Books every requested schedule for the guest in a single transaction, or none of them.
+     * The returned slots tell which schedule prevented the booking when it is not possible.
+     */
+    @Transactional
+    public BatchReservationDTO bookReservations(CreateBatchReservationRequestDTO createBatchReservationRequestDTO) {
+        Guest guest = findGuest(createBatchReservationRequestDTO.getGuestId());
+        List<Long> scheduleIds = createBatchReservationRequestDTO.getScheduleIds();
+        Map<Long, Schedule> schedules = scheduleRepository.findAllById(scheduleIds).stream()
+                .collect(Collectors.toMap(Schedule::getId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map<Long, ReservationSlotStatus> statuses = new LinkedHashMap<>();
+        List<ReservationSlotResultDTO> duplicates = new ArrayList<>();
+        for (Long scheduleId : scheduleIds) {
+            if (statuses.containsKey(scheduleId)) {
+                duplicates.add(slotResult(scheduleId, ReservationSlotStatus.DUPLICATED, null));
+            } else if (!schedules.containsKey(scheduleId)) {
+                statuses.put(scheduleId, ReservationSlotStatus.SCHEDULE_NOT_FOUND);
+            } else if (schedules.get(scheduleId).getStartDateTime().isBefore(now)) {
+                statuses.put(scheduleId, ReservationSlotStatus.PAST_SCHEDULE);
+            } else {
+                statuses.put(scheduleId, ReservationSlotStatus.NOT_BOOKED);
+            }
+        }
+
+        if (duplicates.isEmpty() && !statuses.containsValue(ReservationSlotStatus.SCHEDULE_NOT_FOUND)
+                && !statuses.containsValue(ReservationSlotStatus.PAST_SCHEDULE)) {
+            Set<Long> alreadyBooked = scheduleOccupancyIndex.tryClaimAll(schedules.values());
+            if (alreadyBooked.isEmpty()) {
+                return bookedBatch(guest, statuses.keySet().stream().map(schedules::get).collect(Collectors.toList()));
+            }
+            alreadyBooked.forEach(scheduleId -> statuses.put(scheduleId, ReservationSlotStatus.ALREADY_BOOKED));
+        }
+
+        List<ReservationSlotResultDTO> slots = statuses.entrySet().stream()
+                .map(status -> slotResult(status.getKey(), status.getValue(), null))
+                .collect(Collectors.toCollection(ArrayList::new));
+        slots.addAll(duplicates);
+        return BatchReservationDTO.builder()
+                .booked(false)
+                .guestId(guest.getId())
+                .slots(slots)
+                .build();
+    }
+
+    private BatchReservationDTO bookedBatch(Guest guest, List<Schedule> schedules) {
+        List<Reservation> reservations;
+        try {
+            reservations = reservationRepository.saveAll(schedules.stream()
+                    .map(schedule -> newReservation(guest, schedule))
+                    .collect(Collectors.toList()));
+            reservationRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw alreadyBookedOrRethrow(e, "One of the schedules is already booked.");
+        }
+        reservations.forEach(reservation -> publish(ReservationEventType.BOOKED, reservation));
+
+        return BatchReservationDTO.builder()
+                .booked(true)
+                .guestId(guest.getId())
+                .slots(reservations.stream()
+                        .map(reservation -> slotResult(reservation.getSchedule().getId(), ReservationSlotStatus.BOOKED, reservation.getId()))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private ReservationSlotResultDTO slotResult(Long scheduleId, ReservationSlotStatus status, Long reservationId) {
+        return ReservationSlotResultDTO.builder()
+                .scheduleId(scheduleId)
+                .status(status)
+                .reservationId(reservationId)
+                .build();
+    }
+
+    private Reservation newReservation(Guest guest, Schedule schedule) {
+        return Reservation.builder()
+                .guest(guest)
+                .schedule(schedule)
+                .value(RESERVATION_DEPOSIT)
+                .reservationStatus(ReservationStatus.READY_TO_PLAY)
+                .build();
+    }
+
+    private void validateBooking(Schedule schedule) {
+        if (schedule.getStartDateTime().isBefore(LocalDateTime.now(clock))) {
+            throw new IllegalArgumentException("Can book only future dates.");
+        }
+    }
+
+    private Guest findGuest(Long guestId) {
+        return guestRepository.findById(guestId)
+                .orElseThrow(() -> new EntityNotFoundException("Guest with id " + guestId + " not found."));
+    }
+
+    private Schedule findSchedule(Long scheduleId) {
+        return scheduleRepository.findById(scheduleId)
+                .orElseThrow(() -> new EntityNotFoundException("Schedule with id " + scheduleId + " not found."));
     }
 
     public ReservationDTO findReservation(Long reservationId) {
@@ -24,69 +168,104 @@ public class ReservationService {
         });
     }
 
+    @Transactional
     public ReservationDTO cancelReservation(Long reservationId) {
         return reservationMapper.map(this.cancel(reservationId));
     }
 
     private Reservation cancel(Long reservationId) {
-        return reservationRepository.findById(reservationId).map(reservation -> {
+        Reservation reservation = findLockedReservation(reservationId);
 
-            this.validateCancellation(reservation);
+        this.validateCancellation(reservation);
 
-            BigDecimal refundValue = getRefundValue(reservation);
-            return this.updateReservation(reservation, refundValue, ReservationStatus.CANCELLED);
+        BigDecimal refundValue = getRefundValue(reservation);
+        Reservation cancelled = this.updateReservation(reservation, refundValue, ReservationStatus.CANCELLED);
+        publish(ReservationEventType.CANCELLED, cancelled);
+        return cancelled;
+    }
 
-        }).orElseThrow(() -> {
-            throw new EntityNotFoundException("Reservation not found.");
-        });
+    private Reservation findLockedReservation(Long reservationId) {
+        return reservationRepository.findLockedById(reservationId)
+                .orElseThrow(() -> new EntityNotFoundException("Reservation not found."));
     }
 
     private Reservation updateReservation(Reservation reservation, BigDecimal refundValue, ReservationStatus status) {
         reservation.setReservationStatus(status);
         reservation.setValue(reservation.getValue().subtract(refundValue));
         reservation.setRefundValue(refundValue);
+        scheduleOccupancyIndex.release(reservation.getSchedule().getId());
 
         return reservationRepository.save(reservation);
     }
 
+    private void publish(ReservationEventType type, Reservation reservation) {
+        applicationEventPublisher.publishEvent(ReservationEvent.of(type, reservation));
+    }
+
     private void validateCancellation(Reservation reservation) {
         if (!ReservationStatus.READY_TO_PLAY.equals(reservation.getReservationStatus())) {
             throw new IllegalArgumentException("Cannot cancel/reschedule because it's not in ready to play status.");
         }
 
-        if (reservation.getSchedule().getStartDateTime().isBefore(LocalDateTime.now())) {
+        if (reservation.getSchedule().getStartDateTime().isBefore(LocalDateTime.now(clock))) {
             throw new IllegalArgumentException("Can cancel/reschedule only future dates.");
         }
     }
 
     public BigDecimal getRefundValue(Reservation reservation) {
-        long hours = ChronoUnit.HOURS.between(LocalDateTime.now(), reservation.getSchedule().getStartDateTime());
-
-        if (hours >= 24) {
-            return reservation.getValue();
-        }
-
-        return BigDecimal.ZERO;
+        return MinorUnits.toAmount(refundPolicy.refundCents(MinorUnits.toCents(reservation.getValue()),
+                reservation.getSchedule().getStartDateTime()));
     }
 
-    /*TODO: This method actually not fully working, find a way to fix the issue when it's throwing the error:
-            "Cannot reschedule to the same slot.*/
+    /**
+     * Moves a reservation to another schedule in one transaction: the previous reservation and
+     * the target schedule are locked once, the previous reservation becomes RESCHEDULED and the
+     * new one is inserted in the same flush.
+     */
+    @Transactional
     public ReservationDTO rescheduleReservation(Long previousReservationId, Long scheduleId) {
-        Reservation previousReservation = reservationMapper.map(findReservation(previousReservationId));
+        Reservation previousReservation = findLockedReservation(previousReservationId);
 
         if (scheduleId.equals(previousReservation.getSchedule().getId())) {
             throw new IllegalArgumentException("Cannot reschedule to the same slot.");
         }
 
-        previousReservation = cancel(previousReservationId);
-        previousReservation.setReservationStatus(ReservationStatus.RESCHEDULED);
-        reservationRepository.save(previousReservation);
+        validateCancellation(previousReservation);
 
-        ReservationDTO newReservation = bookReservation(CreateReservationRequestDTO.builder()
-                .guestId(previousReservation.getGuest().getId())
-                .scheduleId(scheduleId)
-                .build());
-        newReservation.setPreviousReservation(reservationMapper.map(previousReservation));
-        return newReservation;
+        Schedule schedule = scheduleRepository.findLockedById(scheduleId)
+                .orElseThrow(() -> new EntityNotFoundException("Schedule with id " + scheduleId + " not found."));
+        validateBooking(schedule);
+
+        if (!scheduleOccupancyIndex.tryClaim(schedule)) {
+            throw new AlreadyExistsEntityException("Schedule with id " + schedule.getId() + " is already booked.");
+        }
+
+        updateReservation(previousReservation, getRefundValue(previousReservation), ReservationStatus.RESCHEDULED);
+        Reservation newReservation = reservationRepository.save(newReservation(previousReservation.getGuest(), schedule));
+        try {
+            reservationRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw alreadyBookedOrRethrow(e, "Schedule with id " + schedule.getId() + " is already booked.");
+        }
+        publish(ReservationEventType.RESCHEDULED, previousReservation);
+        publish(ReservationEventType.BOOKED, newReservation);
+
+        ReservationDTO newReservationDTO = reservationMapper.map(newReservation);
+        newReservationDTO.setPreviousReservation(reservationMapper.map(previousReservation));
+        return newReservationDTO;
+    }
+
+    /**
+     * Only a violation of the single active reservation per schedule means the slot is booked,
+     * any other integrity violation is a bug and is rethrown as is.
+     */
+    private static RuntimeException alreadyBookedOrRethrow(DataIntegrityViolationException e, String message) {
+        if (e.getCause() instanceof ConstraintViolationException) {
+            String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+            if (constraintName != null && constraintName.toLowerCase(Locale.ROOT).contains(Reservation.ACTIVE_SCHEDULE_CONSTRAINT)) {
+                return new AlreadyExistsEntityException(message);
+            }
+        }
+        return e;
     }
 }
@@ -0,0 +1,20 @@
+package com.tenniscourts.reservations;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class ReservationSlotResultDTO {
+
+    private Long scheduleId;
+
+    private ReservationSlotStatus status;
+
+    private Long reservationId;
+
+}
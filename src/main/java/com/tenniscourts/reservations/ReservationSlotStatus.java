@@ -0,0 +1,10 @@
+package com.tenniscourts.reservations;
+
+public enum ReservationSlotStatus {
+  BOOKED,
+  NOT_BOOKED,
+  DUPLICATED,
+  SCHEDULE_NOT_FOUND,
+  PAST_SCHEDULE,
+  ALREADY_BOOKED
+}
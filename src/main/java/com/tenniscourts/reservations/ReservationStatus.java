@@ -3,5 +3,6 @@ package com.tenniscourts.reservations;
 public enum ReservationStatus {
   READY_TO_PLAY,
   CANCELLED,
-  RESCHEDULED
+  RESCHEDULED,
+  NO_SHOW
 }
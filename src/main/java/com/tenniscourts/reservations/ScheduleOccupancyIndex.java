@@ -0,0 +1,159 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.tenniscourts.TennisCourtLocks;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory view of which schedules hold an active reservation, keyed by schedule id.
+ * <p>
+ * Entries are loaded lazily from the database and claimed under the owning court's lock.
+ * A claim made inside a transaction is forgotten again if that transaction rolls back, so
+ * the next lookup reloads the authoritative state from the database. An occupied entry that
+ * is not claimed by a running transaction of this node may be stale, a reservation can be
+ * cancelled by another node, so it is checked against the database again before a claim is
+ * refused.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScheduleOccupancyIndex {
+
+    private final ReservationRepository reservationRepository;
+    private final TennisCourtLocks tennisCourtLocks;
+
+    private final ConcurrentMap<Long, Boolean> occupied = new ConcurrentHashMap<>();
+    private final Set<Long> pendingClaims = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Marks the schedule as occupied unless it already is.
+     *
+     * @return true if the schedule was free and is now claimed by the caller
+     */
+    public boolean tryClaim(Schedule schedule) {
+        Lock lock = tennisCourtLocks.forCourt(schedule.getTennisCourt().getId());
+        lock.lock();
+        try {
+            if (isOccupied(schedule.getId()) && !stillOccupied(Collections.singletonList(schedule.getId())).isEmpty()) {
+                return false;
+            }
+            claim(schedule.getId());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Claims all schedules at once, or none of them if any is already occupied. Schedules the
+     * index does not know yet are loaded with a single query.
+     *
+     * @return the ids of the schedules that are already occupied; empty if all were claimed
+     */
+    public Set<Long> tryClaimAll(Collection<Schedule> schedules) {
+        List<Lock> locks = tennisCourtLocks.forCourts(schedules.stream()
+                .map(schedule -> schedule.getTennisCourt().getId())
+                .collect(Collectors.toList()));
+        locks.forEach(Lock::lock);
+        try {
+            load(schedules.stream()
+                    .map(Schedule::getId)
+                    .filter(scheduleId -> !occupied.containsKey(scheduleId))
+                    .collect(Collectors.toList()));
+
+            Set<Long> alreadyOccupied = stillOccupied(schedules.stream()
+                    .map(Schedule::getId)
+                    .filter(this::isOccupied)
+                    .collect(Collectors.toList()));
+            if (alreadyOccupied.isEmpty()) {
+                schedules.forEach(schedule -> claim(schedule.getId()));
+            }
+            return alreadyOccupied;
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    /**
+     * Marks the schedule as free once the current transaction commits.
+     */
+    public void release(Long scheduleId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    occupied.put(scheduleId, Boolean.FALSE);
+                }
+            });
+        } else {
+            occupied.put(scheduleId, Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Drops what is known about the schedule, so the next lookup goes to the database.
+     */
+    public void forget(Long scheduleId) {
+        occupied.remove(scheduleId);
+        pendingClaims.remove(scheduleId);
+    }
+
+    boolean isOccupied(Long scheduleId) {
+        Boolean known = occupied.get(scheduleId);
+        if (known == null) {
+            known = reservationRepository.existsBySchedule_IdAndReservationStatus(scheduleId, ReservationStatus.READY_TO_PLAY);
+            occupied.put(scheduleId, known);
+        }
+        return known;
+    }
+
+    /**
+     * Reloads the occupied schedules that no running transaction of this node claimed.
+     *
+     * @return the ids of the schedules that are still occupied
+     */
+    private Set<Long> stillOccupied(Collection<Long> scheduleIds) {
+        load(scheduleIds.stream()
+                .filter(scheduleId -> !pendingClaims.contains(scheduleId))
+                .collect(Collectors.toList()));
+        return scheduleIds.stream()
+                .filter(this::isOccupied)
+                .collect(Collectors.toSet());
+    }
+
+    private void load(Collection<Long> scheduleIds) {
+        if (scheduleIds.isEmpty()) {
+            return;
+        }
+        Set<Long> active = reservationRepository.findReservedScheduleIds(scheduleIds, ReservationStatus.READY_TO_PLAY);
+        scheduleIds.forEach(scheduleId -> occupied.put(scheduleId, active.contains(scheduleId)));
+    }
+
+    private void claim(Long scheduleId) {
+        occupied.put(scheduleId, Boolean.TRUE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingClaims.add(scheduleId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        pendingClaims.remove(scheduleId);
+                    } else {
+                        forget(scheduleId);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.tenniscourts.reservations;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Refunds by notice given: the tier table is compiled into a sorted array of notice boundaries
+ * in minutes, so a refund is a binary search and integer arithmetic on cents.
+ * <p>
+ * The standard table refunds everything with 24 hours notice or more, keeps 25% from 12:00 to
+ * 23:59 hours, 50% from 2:00 to 11:59 hours, 75% from 0:01 to 1:59 hours, and everything once
+ * the schedule started or the guest did not show up.
+ */
+@Component
+public class TieredRefundPolicy implements RefundPolicy {
+
+    public static final List<RefundTier> STANDARD_TIERS = Arrays.asList(
+            RefundTier.of(Duration.ofHours(24), 100),
+            RefundTier.of(Duration.ofHours(12), 75),
+            RefundTier.of(Duration.ofHours(2), 50),
+            RefundTier.of(Duration.ofMinutes(1), 25));
+
+    private static final int NO_SHOW_REFUND_PERCENT = 0;
+
+    private final Clock clock;
+
+    private final long[] noticeBoundaries;
+
+    private final int[] refundPercents;
+
+    @Autowired
+    public TieredRefundPolicy(Clock clock) {
+        this(clock, STANDARD_TIERS);
+    }
+
+    public TieredRefundPolicy(Clock clock, List<RefundTier> tiers) {
+        RefundTier[] sorted = tiers.stream()
+                .sorted(Comparator.comparing(RefundTier::getMinimumNotice))
+                .toArray(RefundTier[]::new);
+
+        this.clock = clock;
+        this.noticeBoundaries = new long[sorted.length];
+        this.refundPercents = new int[sorted.length + 1];
+        for (int i = 0; i < sorted.length; i++) {
+            noticeBoundaries[i] = sorted[i].getMinimumNotice().toMinutes();
+            refundPercents[i + 1] = sorted[i].getRefundPercent();
+        }
+    }
+
+    @Override
+    public long refundCents(long valueCents, LocalDateTime startDateTime) {
+        return percentOf(valueCents, refundPercents[tierOf(minutesUntil(startDateTime))]);
+    }
+
+    @Override
+    public long noShowRefundCents(long valueCents) {
+        return percentOf(valueCents, NO_SHOW_REFUND_PERCENT);
+    }
+
+    private long minutesUntil(LocalDateTime startDateTime) {
+        ZoneOffset offset = clock.getZone().getRules().getOffset(startDateTime);
+        long secondsUntil = startDateTime.toEpochSecond(offset) - Math.floorDiv(clock.millis(), 1000L);
+        return Math.floorDiv(secondsUntil, 60L);
+    }
+
+    private int tierOf(long minutesUntil) {
+        int position = Arrays.binarySearch(noticeBoundaries, minutesUntil);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private static long percentOf(long cents, int percent) {
+        return cents * percent / 100;
+    }
+}
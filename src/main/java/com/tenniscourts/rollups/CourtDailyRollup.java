@@ -0,0 +1,59 @@
+package com.tenniscourts.rollups;
+
+import com.tenniscourts.config.persistence.BaseEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Reservation counters and amounts of one tennis court for the day its schedules start.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"tennis_court_id", "rollup_date"}))
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class CourtDailyRollup extends BaseEntity<Long> {
+
+    @Column(name = "tennis_court_id")
+    @NotNull
+    private Long tennisCourtId;
+
+    @Column(name = "rollup_date")
+    @NotNull
+    private LocalDate rollupDate;
+
+    @Column
+    private long booked;
+
+    @Column
+    private long cancelled;
+
+    @Column
+    private long rescheduled;
+
+    @Column
+    private long noShow;
+
+    @Column
+    @NotNull
+    private BigDecimal depositCollected;
+
+    @Column
+    @NotNull
+    private BigDecimal refundsPaid;
+}
@@ -0,0 +1,53 @@
+package com.tenniscourts.rollups;
+
+import com.tenniscourts.config.BaseRestController;
+import com.tenniscourts.exceptions.ErrorDetails;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/v1/rollups")
+@Validated
+public class CourtDailyRollupController extends BaseRestController {
+    private final CourtDailyRollupService courtDailyRollupService;
+
+    @ApiOperation(value = "Return the daily reservation rollups of the tennis courts between dates",
+            produces = "application/json", consumes = "application/json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully obtained the rollups", response = CourtDailyRollupDTO.class, responseContainer = "List"),
+            @ApiResponse(code = 204, message = "No rollups between this dates"),
+            @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
+            @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @GetMapping
+    public ResponseEntity<List<CourtDailyRollupDTO>> findRollups(
+            @RequestParam(value = "startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(value = "endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(value = "tennisCourtId", required = false) Long tennisCourtId) {
+        List<CourtDailyRollupDTO> rollups = courtDailyRollupService.findRollups(startDate, endDate, tennisCourtId);
+        return rollups.isEmpty() ?
+                ResponseEntity.noContent().build() :
+                ResponseEntity.ok(rollups);
+    }
+
+    @ApiOperation(value = "Rebuild every rollup from the reservation history", produces = "application/json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully rebuilt the rollups, returns the number of rows written"),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @PostMapping("/rebuild")
+    public ResponseEntity<Integer> rebuild() {
+        return ResponseEntity.ok(courtDailyRollupService.rebuild());
+    }
+}
@@ -0,0 +1,32 @@
+package com.tenniscourts.rollups;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CourtDailyRollupDTO {
+
+    private Long tennisCourtId;
+
+    private LocalDate rollupDate;
+
+    private long booked;
+
+    private long cancelled;
+
+    private long rescheduled;
+
+    private long noShow;
+
+    private BigDecimal depositCollected;
+
+    private BigDecimal refundsPaid;
+}
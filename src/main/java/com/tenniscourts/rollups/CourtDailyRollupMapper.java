@@ -0,0 +1,13 @@
+package com.tenniscourts.rollups;
+
+import org.mapstruct.Mapper;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface CourtDailyRollupMapper {
+
+    CourtDailyRollupDTO map(CourtDailyRollup source);
+
+    List<CourtDailyRollupDTO> map(List<CourtDailyRollup> source);
+}
@@ -0,0 +1,45 @@
+package com.tenniscourts.rollups;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface CourtDailyRollupRepository extends JpaRepository<CourtDailyRollup, Long> {
+
+    List<CourtDailyRollup> findByRollupDateBetweenOrderByRollupDateAscTennisCourtIdAsc(LocalDate from, LocalDate to);
+
+    List<CourtDailyRollup> findByTennisCourtIdAndRollupDateBetweenOrderByRollupDateAsc(Long tennisCourtId, LocalDate from, LocalDate to);
+
+    /**
+     * Per tennis court, day and reservation status: the number of reservations, the deposits
+     * they collected and the refunds they paid.
+     */
+    @Query("select s.tennisCourt.id, cast(s.startDateTime as date), r.reservationStatus, count(r), " +
+            "sum(r.value + coalesce(r.refundValue, 0)), sum(coalesce(r.refundValue, 0)) " +
+            "from Reservation r join r.schedule s " +
+            "group by s.tennisCourt.id, cast(s.startDateTime as date), r.reservationStatus")
+    List<Object[]> aggregateReservations();
+
+    /**
+     * Bypasses the entity callbacks, so the increment is not journaled: the rollups are derived
+     * from the reservation changes, which are, and can be rebuilt from them.
+     */
+    @Modifying
+    @Query("update CourtDailyRollup r set r.booked = r.booked + :booked, r.cancelled = r.cancelled + :cancelled, " +
+            "r.rescheduled = r.rescheduled + :rescheduled, r.noShow = r.noShow + :noShow, " +
+            "r.depositCollected = r.depositCollected + :depositCollected, r.refundsPaid = r.refundsPaid + :refundsPaid " +
+            "where r.tennisCourtId = :tennisCourtId and r.rollupDate = :rollupDate")
+    int increment(@Param("tennisCourtId") Long tennisCourtId,
+                  @Param("rollupDate") LocalDate rollupDate,
+                  @Param("booked") long booked,
+                  @Param("cancelled") long cancelled,
+                  @Param("rescheduled") long rescheduled,
+                  @Param("noShow") long noShow,
+                  @Param("depositCollected") BigDecimal depositCollected,
+                  @Param("refundsPaid") BigDecimal refundsPaid);
+}
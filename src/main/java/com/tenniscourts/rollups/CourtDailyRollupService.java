@@ -0,0 +1,342 @@
+package com.tenniscourts.rollups;
+
+import com.tenniscourts.config.persistence.QueryResults;
+import com.tenniscourts.exceptions.BusinessException;
+import com.tenniscourts.reservations.NoShowSweptEvent;
+import com.tenniscourts.reservations.ReservationEvent;
+import com.tenniscourts.reservations.ReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.transaction.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps {@link CourtDailyRollup} rows up to date as reservations change, and rebuilds them from
+ * the reservation history for backfills.
+ * <p>
+ * A change does not touch the rollups in its own transaction, which would serialize every
+ * booking of a court and day on its row. Its deltas are merged into pending per court and day
+ * once the transaction committed, and a scheduled flush adds them to the rows in a transaction
+ * of its own, creating missing rows. Deltas pending when the instance stops abruptly are lost
+ * until the next rebuild.
+ * <p>
+ * A rebuild drops the pending deltas its aggregate already counts, so it reads the reservations
+ * while no change is between its commit and its delta being pending, and the flush leaves the
+ * rows alone until the rebuild completed.
+ */
+@Slf4j
+@Service
+public class CourtDailyRollupService {
+    private static final long REBUILD_LOCK_TIMEOUT_SECONDS = 30;
+
+    private final CourtDailyRollupRepository courtDailyRollupRepository;
+    private final CourtDailyRollupMapper courtDailyRollupMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<CourtDay, Delta> pending = new ConcurrentHashMap<>();
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private final Lock flushLock = new ReentrantLock();
+
+    public CourtDailyRollupService(CourtDailyRollupRepository courtDailyRollupRepository,
+                                   CourtDailyRollupMapper courtDailyRollupMapper,
+                                   PlatformTransactionManager transactionManager) {
+        this.courtDailyRollupRepository = courtDailyRollupRepository;
+        this.courtDailyRollupMapper = courtDailyRollupMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener
+    public void onReservationEvent(ReservationEvent event) {
+        Long tennisCourtId = event.getTennisCourtId();
+        LocalDate rollupDate = event.getStartDateTime().toLocalDate();
+        BigDecimal refundValue = Objects.isNull(event.getRefundValue()) ? BigDecimal.ZERO : event.getRefundValue();
+
+        switch (event.getType()) {
+            case BOOKED:
+                increment(tennisCourtId, rollupDate, 1, 0, 0, 0, event.getValue(), BigDecimal.ZERO);
+                break;
+            case CANCELLED:
+                increment(tennisCourtId, rollupDate, 0, 1, 0, 0, BigDecimal.ZERO, refundValue);
+                break;
+            case RESCHEDULED:
+                increment(tennisCourtId, rollupDate, 0, 0, 1, 0, BigDecimal.ZERO, refundValue);
+                break;
+            case NO_SHOW:
+                increment(tennisCourtId, rollupDate, 0, 0, 0, 1, BigDecimal.ZERO, refundValue);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown reservation event " + event.getType());
+        }
+    }
+
+    @EventListener
+    public void onNoShowSwept(NoShowSweptEvent event) {
+        increment(event.getTennisCourtId(), event.getDate(), 0, 0, 0, event.getReservations(),
+                BigDecimal.ZERO, event.getRefundValue());
+    }
+
+    /**
+     * Adds to the counters of a court and day once the current transaction commits, or right
+     * away without one.
+     */
+    public void increment(Long tennisCourtId, LocalDate rollupDate, long booked, long cancelled, long rescheduled,
+                          long noShow, BigDecimal depositCollected, BigDecimal refundsPaid) {
+        CourtDay courtDay = new CourtDay(tennisCourtId, rollupDate);
+        Delta delta = new Delta(booked, cancelled, rescheduled, noShow, depositCollected, refundsPaid);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Lock lock = commitLock.readLock();
+            lock.lock();
+            try {
+                pending.merge(courtDay, delta, Delta::plus);
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        transactionDeltas().merge(courtDay, delta, Delta::plus);
+    }
+
+    private Map<CourtDay, Delta> transactionDeltas() {
+        TransactionDeltas deltas = (TransactionDeltas) TransactionSynchronizationManager.getResource(TransactionDeltas.class);
+        if (deltas != null) {
+            return deltas.getDeltas();
+        }
+        TransactionDeltas transactionDeltas = new TransactionDeltas();
+        TransactionSynchronizationManager.bindResource(TransactionDeltas.class, transactionDeltas);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // a rebuild must not read the reservations between the commit and the deltas being pending
+                commitLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                transactionDeltas.getDeltas().forEach((courtDay, delta) -> pending.merge(courtDay, delta, Delta::plus));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    commitLock.readLock().unlock();
+                }
+                TransactionSynchronizationManager.unbindResourceIfPossible(TransactionDeltas.class);
+            }
+        });
+        return transactionDeltas.getDeltas();
+    }
+
+    /**
+     * Adds the pending deltas to their rows in one transaction. When it fails, the deltas are
+     * pending again for the next run.
+     */
+    @Scheduled(fixedDelayString = "${tenniscourts.rollups.flush-delay:1000}")
+    @PreDestroy
+    public void flush() {
+        // a rebuild replaces the rows, its deltas are flushed on the next run
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<CourtDay, Delta> deltas = new HashMap<>();
+            for (CourtDay courtDay : new ArrayList<>(pending.keySet())) {
+                Delta delta = pending.remove(courtDay);
+                if (delta != null) {
+                    deltas.put(courtDay, delta);
+                }
+            }
+            if (deltas.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.execute(status -> {
+                    deltas.forEach(this::apply);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                deltas.forEach((courtDay, delta) -> pending.merge(courtDay, delta, Delta::plus));
+                log.warn("Could not update the rollups of {} court days, retrying on the next run.", deltas.size(), e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void apply(CourtDay courtDay, Delta delta) {
+        if (courtDailyRollupRepository.increment(courtDay.getTennisCourtId(), courtDay.getRollupDate(), delta.getBooked(),
+                delta.getCancelled(), delta.getRescheduled(), delta.getNoShow(), delta.getDepositCollected(),
+                delta.getRefundsPaid()) > 0) {
+            return;
+        }
+        // another instance creating the row too fails the flush, which then finds the row on the next run
+        courtDailyRollupRepository.saveAndFlush(CourtDailyRollup.builder()
+                .tennisCourtId(courtDay.getTennisCourtId())
+                .rollupDate(courtDay.getRollupDate())
+                .booked(delta.getBooked())
+                .cancelled(delta.getCancelled())
+                .rescheduled(delta.getRescheduled())
+                .noShow(delta.getNoShow())
+                .depositCollected(delta.getDepositCollected())
+                .refundsPaid(delta.getRefundsPaid())
+                .build());
+    }
+
+    /**
+     * Recomputes every rollup row from the reservations table.
+     *
+     * @return the number of rollup rows written
+     */
+    @Transactional
+    public int rebuild() {
+        Lock flush = flushLock;
+        tryLock(flush);
+        if (!holdUntilCompletion(flush)) {
+            flush.unlock();
+            throw new IllegalStateException("The rollups can only be rebuilt in a transaction.");
+        }
+
+        List<Object[]> aggregate;
+        Lock commits = commitLock.writeLock();
+        tryLock(commits);
+        try {
+            // the aggregate counts every change committed so far, their deltas must not be added again
+            pending.clear();
+            aggregate = courtDailyRollupRepository.aggregateReservations();
+        } finally {
+            commits.unlock();
+        }
+
+        Map<CourtDay, CourtDailyRollup> rollups = new LinkedHashMap<>();
+        for (Object[] row : aggregate) {
+            Long tennisCourtId = ((Number) row[0]).longValue();
+            LocalDate rollupDate = QueryResults.toLocalDate(row[1]);
+            ReservationStatus status = (ReservationStatus) row[2];
+            long count = ((Number) row[3]).longValue();
+
+            CourtDailyRollup rollup = rollups.computeIfAbsent(new CourtDay(tennisCourtId, rollupDate), key -> CourtDailyRollup.builder()
+                    .tennisCourtId(tennisCourtId)
+                    .rollupDate(rollupDate)
+                    .depositCollected(BigDecimal.ZERO)
+                    .refundsPaid(BigDecimal.ZERO)
+                    .build());
+            rollup.setBooked(rollup.getBooked() + count);
+            rollup.setDepositCollected(rollup.getDepositCollected().add((BigDecimal) row[4]));
+            rollup.setRefundsPaid(rollup.getRefundsPaid().add((BigDecimal) row[5]));
+            switch (status) {
+                case CANCELLED:
+                    rollup.setCancelled(rollup.getCancelled() + count);
+                    break;
+                case RESCHEDULED:
+                    rollup.setRescheduled(rollup.getRescheduled() + count);
+                    break;
+                case NO_SHOW:
+                    rollup.setNoShow(rollup.getNoShow() + count);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        courtDailyRollupRepository.deleteAllInBatch();
+        return courtDailyRollupRepository.saveAll(new ArrayList<>(rollups.values())).size();
+    }
+
+    private static void tryLock(Lock lock) {
+        try {
+            if (!lock.tryLock(REBUILD_LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new BusinessException("The rollups are being updated, try the rebuild again later.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("The rollup rebuild was interrupted.");
+        }
+    }
+
+    /**
+     * Releases the lock when the current transaction completes.
+     *
+     * @return false if there is no transaction to wait for, the caller releases the lock itself
+     */
+    private static boolean holdUntilCompletion(Lock lock) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+        return true;
+    }
+
+    public List<CourtDailyRollupDTO> findRollups(LocalDate from, LocalDate to, Long tennisCourtId) {
+        return courtDailyRollupMapper.map(Objects.isNull(tennisCourtId) ?
+                courtDailyRollupRepository.findByRollupDateBetweenOrderByRollupDateAscTennisCourtIdAsc(from, to) :
+                courtDailyRollupRepository.findByTennisCourtIdAndRollupDateBetweenOrderByRollupDateAsc(tennisCourtId, from, to));
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class CourtDay {
+
+        private final Long tennisCourtId;
+
+        private final LocalDate rollupDate;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Delta {
+
+        private final long booked;
+
+        private final long cancelled;
+
+        private final long rescheduled;
+
+        private final long noShow;
+
+        private final BigDecimal depositCollected;
+
+        private final BigDecimal refundsPaid;
+
+        private Delta plus(Delta other) {
+            return new Delta(booked + other.booked, cancelled + other.cancelled, rescheduled + other.rescheduled,
+                    noShow + other.noShow, depositCollected.add(other.depositCollected), refundsPaid.add(other.refundsPaid));
+        }
+    }
+
+    @Getter
+    private static final class TransactionDeltas {
+
+        private final Map<CourtDay, Delta> deltas = new HashMap<>();
+    }
+}
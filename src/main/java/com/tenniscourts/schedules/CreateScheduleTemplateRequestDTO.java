@@ -0,0 +1,49 @@
+package com.tenniscourts.schedules;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hourly slots from openingTime until closingTime on the given days of the week, between
+ * startDate and endDate inclusive, for every listed tennis court. Without daysOfWeek every
+ * day is opened.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class CreateScheduleTemplateRequestDTO {
+
+    @NotEmpty
+    private List<@NotNull Long> tennisCourtIds;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @NotNull
+    private LocalDate startDate;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @NotNull
+    private LocalDate endDate;
+
+    @JsonFormat(pattern = "HH:mm")
+    @NotNull
+    private LocalTime openingTime;
+
+    @JsonFormat(pattern = "HH:mm")
+    @NotNull
+    private LocalTime closingTime;
+
+    private Set<DayOfWeek> daysOfWeek;
+
+}
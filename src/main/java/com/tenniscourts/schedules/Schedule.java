@@ -12,16 +12,25 @@ import lombok.Setter;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table
+@NamedEntityGraph(name = Schedule.WITH_TENNIS_COURT, attributeNodes = @NamedAttributeNode("tennisCourt"))
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_schedule_court_start", columnNames = {"tennis_court_id", "start_date_time"}),
+        indexes = @Index(name = "idx_schedule_start", columnList = "start_date_time"))
 @Getter
 @Setter
 @Builder
@@ -30,11 +39,19 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = true, exclude = "reservations")
 public class Schedule extends BaseEntity<Long> {
 
-    @ManyToOne
+    /**
+     * Guests always play for exactly one hour.
+     */
+    public static final Duration DURATION = Duration.ofHours(1);
+
+    public static final String WITH_TENNIS_COURT = "Schedule.withTennisCourt";
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tennis_court_id")
     @NotNull
     private TennisCourt tennisCourt;
 
-    @Column
+    @Column(name = "start_date_time")
     @NotNull
     private LocalDateTime startDateTime;
 
@@ -42,7 +59,7 @@ public class Schedule extends BaseEntity<Long> {
     @NotNull
     private LocalDateTime endDateTime;
 
-    @OneToMany
+    @OneToMany(mappedBy = "schedule")
     private List<Reservation> reservations;
 
     public void addReservation(Reservation reservation) {
@@ -0,0 +1,190 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.reservations.ReservationEvent;
+import com.tenniscourts.reservations.ReservationEventType;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.tenniscourts.TennisCourtLocks;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory view of the upcoming slots of every tennis court and whether they are free.
+ * <p>
+ * A court is loaded from the database the first time it is asked for, with two queries,
+ * and from then on kept in sync by the schedule and reservation events of committed
+ * transactions. Loading and updates of a court run under its lock, so an event committed
+ * while the court loads is never lost. Queries read the sorted slots without locking.
+ * <p>
+ * This is not {@code ScheduleOccupancyIndex}: that one holds the claims of bookings whose
+ * transaction is still running, per schedule, so two bookings cannot both win. This one only
+ * reflects committed changes, and keeps the slots of a court sorted by start to answer ranges.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScheduleAvailabilityIndex {
+
+    private static final Comparator<Slot> BY_START = Comparator.comparing(Slot::getStartDateTime)
+            .thenComparing(Slot::getScheduleId);
+
+    private final ScheduleRepository scheduleRepository;
+    private final ReservationRepository reservationRepository;
+    private final TennisCourtRepository tennisCourtRepository;
+    private final TennisCourtLocks tennisCourtLocks;
+    private final Clock clock;
+
+    private final ConcurrentMap<Long, NavigableSet<Slot>> courts = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the free slots of the courts starting in [from, to], ordered by court and start.
+     * Slots that already started are never free.
+     */
+    public List<FreeSlotDTO> findFreeSlots(Collection<Long> tennisCourtIds, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime lowerBound = from.isBefore(now) ? now : from;
+        if (lowerBound.isAfter(to)) {
+            return Collections.emptyList();
+        }
+
+        return tennisCourtIds.stream()
+                .distinct()
+                .sorted()
+                .flatMap(tennisCourtId -> slotsOf(tennisCourtId)
+                        .subSet(Slot.lowest(lowerBound), true, Slot.highest(to), true).stream()
+                        .filter(Slot::isFree)
+                        .map(slot -> FreeSlotDTO.builder()
+                                .scheduleId(slot.getScheduleId())
+                                .tennisCourtId(tennisCourtId)
+                                .startDateTime(slot.getStartDateTime())
+                                .endDateTime(slot.getEndDateTime())
+                                .build()))
+                .collect(Collectors.toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleCreated(ScheduleCreatedEvent event) {
+        update(event.getTennisCourtId(), slots ->
+                slots.add(new Slot(event.getScheduleId(), event.getStartDateTime(), event.getEndDateTime(), true)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationEvent(ReservationEvent event) {
+        boolean free = event.getType() != ReservationEventType.BOOKED;
+        update(event.getTennisCourtId(), slots -> {
+            Slot slot = slots.ceiling(new Slot(event.getScheduleId(), event.getStartDateTime(), null, false));
+            if (slot != null && slot.getScheduleId().equals(event.getScheduleId())) {
+                slot.setFree(free);
+            }
+        });
+    }
+
+    /**
+     * Drops the slots that already started, they can never become free again.
+     */
+    @Scheduled(fixedDelayString = "${tenniscourts.availability.prune-delay:3600000}")
+    public void prunePast() {
+        Slot now = Slot.lowest(LocalDateTime.now(clock));
+        courts.values().forEach(slots -> slots.headSet(now).clear());
+    }
+
+    private NavigableSet<Slot> slotsOf(Long tennisCourtId) {
+        NavigableSet<Slot> slots = courts.get(tennisCourtId);
+        if (slots != null) {
+            return slots;
+        }
+
+        Lock lock = tennisCourtLocks.forCourt(tennisCourtId);
+        lock.lock();
+        try {
+            slots = courts.get(tennisCourtId);
+            if (slots != null) {
+                return slots;
+            }
+            // queried outside the map, a slow load must not block the other courts of its bin
+            slots = load(tennisCourtId);
+            NavigableSet<Slot> loaded = courts.putIfAbsent(tennisCourtId, slots);
+            return loaded != null ? loaded : slots;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private NavigableSet<Slot> load(Long tennisCourtId) {
+        LocalDateTime from = LocalDate.now(clock).atStartOfDay();
+        List<Object[]> schedules = scheduleRepository.findSlotsByTennisCourt(tennisCourtId, from);
+        if (schedules.isEmpty() && !tennisCourtRepository.existsById(tennisCourtId)) {
+            throw new EntityNotFoundException("Tennis Court with id " + tennisCourtId + " not found.");
+        }
+
+        Set<Long> reserved = reservationRepository.findReservedScheduleIdsByTennisCourt(tennisCourtId, from, ReservationStatus.READY_TO_PLAY);
+        NavigableSet<Slot> slots = new ConcurrentSkipListSet<>(BY_START);
+        schedules.forEach(row -> slots.add(new Slot((Long) row[0], (LocalDateTime) row[1], (LocalDateTime) row[2],
+                !reserved.contains((Long) row[0]))));
+        return slots;
+    }
+
+    private void update(Long tennisCourtId, Consumer<NavigableSet<Slot>> change) {
+        Lock lock = tennisCourtLocks.forCourt(tennisCourtId);
+        lock.lock();
+        try {
+            NavigableSet<Slot> slots = courts.get(tennisCourtId);
+            if (slots != null) {
+                change.accept(slots);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Getter
+    static final class Slot {
+
+        private final Long scheduleId;
+
+        private final LocalDateTime startDateTime;
+
+        private final LocalDateTime endDateTime;
+
+        private volatile boolean free;
+
+        Slot(Long scheduleId, LocalDateTime startDateTime, LocalDateTime endDateTime, boolean free) {
+            this.scheduleId = scheduleId;
+            this.startDateTime = startDateTime;
+            this.endDateTime = endDateTime;
+            this.free = free;
+        }
+
+        void setFree(boolean free) {
+            this.free = free;
+        }
+
+        static Slot lowest(LocalDateTime startDateTime) {
+            return new Slot(Long.MIN_VALUE, startDateTime, null, false);
+        }
+
+        static Slot highest(LocalDateTime startDateTime) {
+            return new Slot(Long.MAX_VALUE, startDateTime, null, false);
+        }
+    }
+}
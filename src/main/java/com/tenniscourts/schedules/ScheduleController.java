@@ -1,20 +1,31 @@
 package com.tenniscourts.schedules;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tenniscourts.config.BaseRestController;
 import com.tenniscourts.exceptions.ErrorDetails;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -22,7 +33,12 @@ import java.util.List;
 @RequestMapping("/api/v1/schedules")
 @Validated
 public class ScheduleController extends BaseRestController {
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final ScheduleService scheduleService;
+    private final ScheduleGenerator scheduleGenerator;
+    private final SlotEventBroadcaster slotEventBroadcaster;
+    private final ObjectMapper objectMapper;
 
     @ApiOperation(value = "Created schedule to given tennis court", consumes = "application/json")
     @ApiResponses(value = {
@@ -30,6 +46,7 @@ public class ScheduleController extends BaseRestController {
             @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
             @ApiResponse(code = 400, message = "Tennis Court not found", response = ErrorDetails.class),
             @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 409, message = "The tennis court already has an overlapping schedule", response = ErrorDetails.class),
             @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
     })
     @ResponseStatus(HttpStatus.CREATED)
@@ -38,7 +55,37 @@ public class ScheduleController extends BaseRestController {
         return ResponseEntity.created(locationByEntity(scheduleService.addSchedule(createScheduleRequestDTO.getTennisCourtId(), createScheduleRequestDTO).getId())).build();
     }
 
+    @ApiOperation(value = "Open the hourly slots of a recurring template for the given tennis courts",
+            notes = "Streams one JSON line of progress per day once that day committed. Slots that already exist " +
+                    "are skipped, so running a template again over an overlapping range creates only the missing ones, " +
+                    "and slots overlapping another schedule of the court are rejected.",
+            consumes = "application/json", produces = APPLICATION_NDJSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Generating the slots", response = ScheduleGenerationProgressDTO.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
+            @ApiResponse(code = 404, message = "Tennis Court not found", response = ErrorDetails.class),
+            @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @PostMapping(value = "/templates", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> generateSchedules(@RequestBody @Valid CreateScheduleTemplateRequestDTO createScheduleTemplateRequestDTO) {
+        scheduleGenerator.validate(createScheduleTemplateRequestDTO);
+
+        StreamingResponseBody body = outputStream -> scheduleGenerator.generate(createScheduleTemplateRequestDTO, progress -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(progress));
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+    }
+
     @ApiOperation(value = "Return the list of scheduled courts between dates",
+            notes = "Returns the schedules overlapping the days from startDate to endDate, inclusive, ordered by start. " +
+                    "A Link header with rel=\"next\" points to the following page when there is one.",
             produces = "application/json", consumes = "application/json")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successfully obtains schedules"),
@@ -48,14 +95,64 @@ public class ScheduleController extends BaseRestController {
             @ApiResponse(code = 500, message = "Internal Server Error")
     })
     @GetMapping
-    public ResponseEntity<List<ScheduleDTO>> findSchedulesByDates(@RequestParam(value = "startDate") @Valid LocalDate startDate,
-                                                                  @RequestParam(value = "endDate") @Valid LocalDate endDate) {
-        List<ScheduleDTO> schedules = scheduleService.findSchedulesByDates(
-                LocalDateTime.of(startDate, LocalTime.of(0, 0)),
-                LocalDateTime.of(endDate, LocalTime.of(23, 59)));
-        return schedules.isEmpty() ?
+    public ResponseEntity<List<ScheduleDTO>> findSchedulesByDates(@RequestParam(value = "startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                                                  @RequestParam(value = "endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                                                                  @RequestParam(value = "tennisCourtId", required = false) Long tennisCourtId,
+                                                                  @RequestParam(value = "page", defaultValue = "0") @Min(0) int page,
+                                                                  @RequestParam(value = "size", defaultValue = "100") @Min(1) @Max(1000) int size) {
+        Slice<ScheduleDTO> schedules = scheduleService.findSchedulesByDates(
+                startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay(),
+                tennisCourtId, page, size);
+        if (!schedules.hasContent()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (schedules.hasNext()) {
+            response.header(HttpHeaders.LINK, "<" + ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("page", page + 1).toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(schedules.getContent());
+    }
+
+    @ApiOperation(value = "Return the free slots of the given tennis courts starting between dates",
+            notes = "Answered from memory, slots that already started are never free.",
+            produces = "application/json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully obtained the free slots", response = FreeSlotDTO.class, responseContainer = "List"),
+            @ApiResponse(code = 204, message = "No free slots between this dates"),
+            @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
+            @ApiResponse(code = 404, message = "Tennis Court not found", response = ErrorDetails.class),
+            @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @GetMapping("/free")
+    public ResponseEntity<List<FreeSlotDTO>> findFreeSlots(
+            @RequestParam(value = "tennisCourtIds") List<Long> tennisCourtIds,
+            @RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        List<FreeSlotDTO> slots = scheduleService.findFreeSlots(tennisCourtIds, from, to);
+        return slots.isEmpty() ?
                 ResponseEntity.noContent().build() :
-                ResponseEntity.ok(schedules);
+                ResponseEntity.ok(slots);
+    }
+
+    @ApiOperation(value = "Stream the slots created, booked and freed on the given tennis court and day",
+            notes = "Server-Sent Events named slot, sent once the change committed, plus a heartbeat comment. " +
+                    "Both filters are optional. A client too slow to keep up is disconnected and should reload " +
+                    "the slots before subscribing again.",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Streaming the slot events", response = SlotEventDTO.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = "Bad Request", response = ErrorDetails.class),
+            @ApiResponse(code = 406, message = "Not Acceptable", response = ErrorDetails.class),
+            @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
+    })
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSlotEvents(@RequestParam(value = "tennisCourtId", required = false) Long tennisCourtId,
+                                       @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return slotEventBroadcaster.subscribe(tennisCourtId, date);
     }
 
     @ApiOperation(value = "Return the list of scheduled courts between dates",
@@ -0,0 +1,31 @@
+package com.tenniscourts.schedules;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@link ScheduleService} inside the transaction that creates a schedule.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ScheduleCreatedEvent {
+
+    private final Long scheduleId;
+
+    private final Long tennisCourtId;
+
+    private final LocalDateTime startDateTime;
+
+    private final LocalDateTime endDateTime;
+
+    public static ScheduleCreatedEvent of(Schedule schedule) {
+        return new ScheduleCreatedEvent(schedule.getId(),
+                schedule.getTennisCourt().getId(),
+                schedule.getStartDateTime(),
+                schedule.getEndDateTime());
+    }
+}
@@ -2,6 +2,7 @@ package com.tenniscourts.schedules;
 
 import com.tenniscourts.tenniscourts.TennisCourtDTO;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -26,4 +27,7 @@ public class ScheduleDTO {
     @JsonFormat(pattern="yyyy-MM-dd'T'HH:mm")
     private LocalDateTime endDateTime;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean booked;
+
 }
@@ -0,0 +1,145 @@
+package com.tenniscourts.schedules;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tenniscourts.reservations.NoShowSweptEvent;
+import com.tenniscourts.reservations.ReservationEvent;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.tenniscourts.TennisCourtDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded cache of the schedules starting on a day, with whether each one is booked, per tennis
+ * court and for all courts together.
+ * <p>
+ * Entries are invalidated after commit by the schedule and reservation events touching their
+ * court and day, the time to live only bounds how long an entry survives a change made by
+ * another node. Hits, misses and evictions are published as the schedules.day cache metrics.
+ * <p>
+ * Callers get copies of the cached schedules, so they are free to change what they are handed.
+ */
+@Component
+public class ScheduleDayCache {
+    private static final String NAME = "schedules.day";
+
+    private static final Sort BY_START = Sort.by("startDateTime", "id");
+
+    private final ScheduleRepository scheduleRepository;
+    private final ReservationRepository reservationRepository;
+    private final ScheduleMapper scheduleMapper;
+    private final Cache<CourtDay, List<ScheduleDTO>> days;
+
+    public ScheduleDayCache(ScheduleRepository scheduleRepository,
+                            ReservationRepository reservationRepository,
+                            ScheduleMapper scheduleMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${tenniscourts.schedule-cache.ttl:PT10M}") Duration ttl,
+                            @Value("${tenniscourts.schedule-cache.max-entries:10000}") long maxEntries) {
+        this.scheduleRepository = scheduleRepository;
+        this.reservationRepository = reservationRepository;
+        this.scheduleMapper = scheduleMapper;
+        this.days = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, days, NAME);
+    }
+
+    /**
+     * The schedules starting on the day, of the tennis court or of every court when it is null,
+     * ordered by start and id.
+     */
+    public List<ScheduleDTO> findByDay(LocalDate day, Long tennisCourtId) {
+        return days.get(new CourtDay(tennisCourtId, day), this::load).stream()
+                .map(ScheduleDayCache::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleCreated(ScheduleCreatedEvent event) {
+        invalidate(event.getTennisCourtId(), event.getStartDateTime().toLocalDate());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationEvent(ReservationEvent event) {
+        invalidate(event.getTennisCourtId(), event.getStartDateTime().toLocalDate());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoShowSwept(NoShowSweptEvent event) {
+        invalidate(event.getTennisCourtId(), event.getDate());
+    }
+
+    private void invalidate(Long tennisCourtId, LocalDate day) {
+        days.invalidate(new CourtDay(tennisCourtId, day));
+        days.invalidate(new CourtDay(null, day));
+    }
+
+    private List<ScheduleDTO> load(CourtDay courtDay) {
+        LocalDateTime from = courtDay.getDay().atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+        List<Schedule> schedules = courtDay.getTennisCourtId() == null ?
+                scheduleRepository.findByStartDateTimeGreaterThanEqualAndStartDateTimeLessThan(from, to, BY_START) :
+                scheduleRepository.findByTennisCourt_IdAndStartDateTimeGreaterThanEqualAndStartDateTimeLessThan(
+                        courtDay.getTennisCourtId(), from, to, BY_START);
+        if (schedules.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> booked = reservationRepository.findReservedScheduleIds(
+                schedules.stream().map(Schedule::getId).collect(Collectors.toList()), ReservationStatus.READY_TO_PLAY);
+        return Collections.unmodifiableList(schedules.stream()
+                .map(schedule -> {
+                    ScheduleDTO scheduleDTO = scheduleMapper.map(schedule);
+                    scheduleDTO.setBooked(booked.contains(schedule.getId()));
+                    return scheduleDTO;
+                })
+                .collect(Collectors.toList()));
+    }
+
+    private static ScheduleDTO copyOf(ScheduleDTO source) {
+        ScheduleDTO scheduleDTO = new ScheduleDTO();
+        scheduleDTO.setId(source.getId());
+        scheduleDTO.setTennisCourtId(source.getTennisCourtId());
+        scheduleDTO.setStartDateTime(source.getStartDateTime());
+        scheduleDTO.setEndDateTime(source.getEndDateTime());
+        scheduleDTO.setBooked(source.getBooked());
+        TennisCourtDTO tennisCourt = source.getTennisCourt();
+        if (tennisCourt != null) {
+            scheduleDTO.setTennisCourt(TennisCourtDTO.builder()
+                    .id(tennisCourt.getId())
+                    .name(tennisCourt.getName())
+                    .build());
+        }
+        return scheduleDTO;
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class CourtDay {
+
+        private final Long tennisCourtId;
+
+        private final LocalDate day;
+    }
+}
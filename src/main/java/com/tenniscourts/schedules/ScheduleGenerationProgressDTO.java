@@ -0,0 +1,35 @@
+package com.tenniscourts.schedules;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class ScheduleGenerationProgressDTO {
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate date;
+
+    private long created;
+
+    private long skipped;
+
+    private long rejected;
+
+    private long totalCreated;
+
+    private long totalSkipped;
+
+    private long totalRejected;
+
+    private long daysDone;
+
+    private long days;
+}
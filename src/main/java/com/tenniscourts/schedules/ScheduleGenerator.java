@@ -0,0 +1,177 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Opens the slots of a {@link CreateScheduleTemplateRequestDTO}.
+ * <p>
+ * The template is expanded one day at a time and each day is written in its own transaction,
+ * through Hibernate's JDBC batching, so neither memory nor transaction size grows with the
+ * range. Slots are claimed in the {@link ScheduleIntervalIndex}: those that already exist for a
+ * court are skipped, which makes re-running a template over an overlapping range safe and lets an
+ * interrupted run be resumed by running it again, and those overlapping another schedule of the
+ * court are rejected.
+ */
+@Slf4j
+@Service
+public class ScheduleGenerator {
+
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleIntervalIndex scheduleIntervalIndex;
+    private final TennisCourtRepository tennisCourtRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public ScheduleGenerator(ScheduleRepository scheduleRepository,
+                             ScheduleIntervalIndex scheduleIntervalIndex,
+                             TennisCourtRepository tennisCourtRepository,
+                             ApplicationEventPublisher applicationEventPublisher,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager) {
+        this.scheduleRepository = scheduleRepository;
+        this.scheduleIntervalIndex = scheduleIntervalIndex;
+        this.tennisCourtRepository = tennisCourtRepository;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Rejects templates that cannot be generated, so callers can fail before streaming progress.
+     */
+    public void validate(CreateScheduleTemplateRequestDTO template) {
+        if (template.getStartDate().isAfter(template.getEndDate())) {
+            throw new IllegalArgumentException("startDate must not be after endDate.");
+        }
+        if (template.getOpeningTime().toSecondOfDay() + Schedule.DURATION.getSeconds() > template.getClosingTime().toSecondOfDay()) {
+            throw new IllegalArgumentException("closingTime must leave room for at least one slot after openingTime.");
+        }
+
+        Set<Long> tennisCourtIds = new TreeSet<>(template.getTennisCourtIds());
+        Set<Long> found = tennisCourtRepository.findAllById(tennisCourtIds).stream()
+                .map(TennisCourt::getId)
+                .collect(Collectors.toSet());
+        tennisCourtIds.removeAll(found);
+        if (!tennisCourtIds.isEmpty()) {
+            throw new EntityNotFoundException("Tennis Court with id " + tennisCourtIds.iterator().next() + " not found.");
+        }
+    }
+
+    /**
+     * Generates the template day by day, handing the progress to the consumer after every day
+     * that committed. The template must have passed {@link #validate} first.
+     */
+    public void generate(CreateScheduleTemplateRequestDTO template, Consumer<ScheduleGenerationProgressDTO> progress) {
+        List<Long> tennisCourtIds = template.getTennisCourtIds().stream().distinct().sorted().collect(Collectors.toList());
+        List<LocalTime> slotStarts = slotStarts(template.getOpeningTime(), template.getClosingTime());
+        Set<DayOfWeek> daysOfWeek = Objects.isNull(template.getDaysOfWeek()) || template.getDaysOfWeek().isEmpty() ?
+                EnumSet.allOf(DayOfWeek.class) : EnumSet.copyOf(template.getDaysOfWeek());
+        long days = ChronoUnit.DAYS.between(template.getStartDate(), template.getEndDate()) + 1;
+
+        long[] totals = new long[4];
+        Stream.iterate(template.getStartDate(), date -> date.plusDays(1))
+                .limit(days)
+                .forEach(date -> {
+                    long[] day = daysOfWeek.contains(date.getDayOfWeek()) ?
+                            transactionTemplate.execute(status -> generateDay(date, tennisCourtIds, slotStarts)) :
+                            new long[3];
+                    totals[0] += day[0];
+                    totals[1] += day[1];
+                    totals[2] += day[2];
+                    totals[3]++;
+
+                    ScheduleGenerationProgressDTO dayProgress = ScheduleGenerationProgressDTO.builder()
+                            .date(date)
+                            .created(day[0])
+                            .skipped(day[1])
+                            .rejected(day[2])
+                            .totalCreated(totals[0])
+                            .totalSkipped(totals[1])
+                            .totalRejected(totals[2])
+                            .daysDone(totals[3])
+                            .days(days)
+                            .build();
+                    log.debug("Generated schedules {}", dayProgress);
+                    progress.accept(dayProgress);
+                });
+        log.info("Generated {} schedules over {} days, skipped {} existing and rejected {} overlapping ones",
+                totals[0], days, totals[1], totals[2]);
+    }
+
+    /**
+     * @return the number of slots created, skipped because they already exist, and rejected
+     * because they overlap another schedule of the court
+     */
+    private long[] generateDay(LocalDate date, List<Long> tennisCourtIds, List<LocalTime> slotStarts) {
+        List<Schedule> schedules = new ArrayList<>();
+        long skipped = 0;
+        long rejected = 0;
+        for (Long tennisCourtId : tennisCourtIds) {
+            TennisCourt tennisCourt = tennisCourtRepository.getOne(tennisCourtId);
+            for (LocalTime slotStart : slotStarts) {
+                LocalDateTime startDateTime = date.atTime(slotStart);
+                LocalDateTime endDateTime = startDateTime.plus(Schedule.DURATION);
+                switch (scheduleIntervalIndex.tryClaim(tennisCourtId, startDateTime, endDateTime)) {
+                    case CLAIMED:
+                        schedules.add(Schedule.builder()
+                                .tennisCourt(tennisCourt)
+                                .startDateTime(startDateTime)
+                                .endDateTime(endDateTime)
+                                .build());
+                        break;
+                    case DUPLICATE:
+                        skipped++;
+                        break;
+                    default:
+                        rejected++;
+                }
+            }
+        }
+
+        try {
+            scheduleRepository.saveAll(schedules);
+            entityManager.flush();
+        } catch (DataIntegrityViolationException e) {
+            // slots created by another node, reload the courts before the template is run again
+            tennisCourtIds.forEach(scheduleIntervalIndex::forget);
+            throw e;
+        }
+        schedules.forEach(schedule -> applicationEventPublisher.publishEvent(ScheduleCreatedEvent.of(schedule)));
+        entityManager.clear();
+        return new long[]{schedules.size(), skipped, rejected};
+    }
+
+    private static List<LocalTime> slotStarts(LocalTime openingTime, LocalTime closingTime) {
+        List<LocalTime> slotStarts = new ArrayList<>();
+        long duration = Schedule.DURATION.getSeconds();
+        for (long start = openingTime.toSecondOfDay(); start + duration <= closingTime.toSecondOfDay(); start += duration) {
+            slotStarts.add(LocalTime.ofSecondOfDay(start));
+        }
+        return slotStarts;
+    }
+}
@@ -0,0 +1,186 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.tenniscourts.TennisCourtLocks;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * In-memory start to end intervals of the schedules of every tennis court, used to reject
+ * overlapping slots without querying the database.
+ * <p>
+ * A court is loaded the first time a slot is claimed on it and only ever read or changed under
+ * the court's lock. A claim made inside a transaction is undone if that transaction rolls back.
+ * The unique (tennis_court_id, start_date_time) constraint stays the backstop for schedules
+ * created by other nodes, after which {@link #forget(Long)} makes the court reload.
+ * <p>
+ * Only the intervals ending less than an hour ago or later are kept, older ones are pruned
+ * and a slot starting before them is checked against the database instead, as only the kept
+ * intervals can overlap a later one.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScheduleIntervalIndex {
+
+    public enum Claim {
+        CLAIMED, DUPLICATE, OVERLAPPING
+    }
+
+    private static final Duration RETAINED_PAST = Duration.ofHours(1);
+
+    private final ScheduleRepository scheduleRepository;
+    private final TennisCourtLocks tennisCourtLocks;
+    private final Clock clock;
+
+    private final ConcurrentMap<Long, NavigableMap<LocalDateTime, LocalDateTime>> courts = new ConcurrentHashMap<>();
+
+    /**
+     * Claims [startDateTime, endDateTime) on the court unless it overlaps one of its schedules.
+     *
+     * @return CLAIMED, or DUPLICATE if the very same slot exists, or OVERLAPPING otherwise
+     */
+    public Claim tryClaim(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        if (startDateTime.isBefore(retainedFrom())) {
+            return claimPast(tennisCourtId, startDateTime, endDateTime);
+        }
+
+        Lock lock = tennisCourtLocks.forCourt(tennisCourtId);
+        lock.lock();
+        try {
+            NavigableMap<LocalDateTime, LocalDateTime> intervals = intervalsOf(tennisCourtId);
+            // intervals never overlap, so the latest one starting before the end is the only candidate
+            Map.Entry<LocalDateTime, LocalDateTime> previous = intervals.lowerEntry(endDateTime);
+            if (previous != null && previous.getValue().isAfter(startDateTime)) {
+                return previous.getKey().equals(startDateTime) && previous.getValue().equals(endDateTime) ?
+                        Claim.DUPLICATE : Claim.OVERLAPPING;
+            }
+
+            intervals.put(startDateTime, endDateTime);
+            undoOnRollback(tennisCourtId, startDateTime);
+            return Claim.CLAIMED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops what is known about the court, so the next claim reloads it from the database.
+     */
+    public void forget(Long tennisCourtId) {
+        courts.remove(tennisCourtId);
+    }
+
+    /**
+     * Drops the intervals that ended more than an hour ago.
+     */
+    @Scheduled(fixedDelayString = "${tenniscourts.availability.prune-delay:3600000}")
+    public void prunePast() {
+        LocalDateTime retainedFrom = retainedFrom();
+        courts.keySet().forEach(tennisCourtId -> {
+            Lock lock = tennisCourtLocks.forCourt(tennisCourtId);
+            lock.lock();
+            try {
+                NavigableMap<LocalDateTime, LocalDateTime> intervals = courts.get(tennisCourtId);
+                if (intervals == null) {
+                    return;
+                }
+                // intervals never overlap, so their ends are sorted like their starts
+                Iterator<LocalDateTime> ends = intervals.values().iterator();
+                while (ends.hasNext() && !ends.next().isAfter(retainedFrom)) {
+                    ends.remove();
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * A slot starting before the kept intervals is rare, it is checked against the database and the
+     * unique constraint still rejects a concurrent duplicate.
+     */
+    private Claim claimPast(Long tennisCourtId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return scheduleRepository.findOverlappingByTennisCourt(tennisCourtId, startDateTime.minus(Schedule.DURATION),
+                        startDateTime, endDateTime, PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .map(schedule -> schedule.getStartDateTime().equals(startDateTime) && schedule.getEndDateTime().equals(endDateTime) ?
+                        Claim.DUPLICATE : Claim.OVERLAPPING)
+                .orElse(Claim.CLAIMED);
+    }
+
+    int intervalCount(Long tennisCourtId) {
+        NavigableMap<LocalDateTime, LocalDateTime> intervals = courts.get(tennisCourtId);
+        return intervals != null ? intervals.size() : 0;
+    }
+
+    private LocalDateTime retainedFrom() {
+        return LocalDateTime.now(clock).minus(RETAINED_PAST);
+    }
+
+    /**
+     * Must be called under the court's lock.
+     */
+    private NavigableMap<LocalDateTime, LocalDateTime> intervalsOf(Long tennisCourtId) {
+        NavigableMap<LocalDateTime, LocalDateTime> intervals = courts.get(tennisCourtId);
+        if (intervals != null) {
+            return intervals;
+        }
+        // queried outside the map, a slow load must not block the other courts of its bin
+        intervals = load(tennisCourtId);
+        NavigableMap<LocalDateTime, LocalDateTime> loaded = courts.putIfAbsent(tennisCourtId, intervals);
+        return loaded != null ? loaded : intervals;
+    }
+
+    private NavigableMap<LocalDateTime, LocalDateTime> load(Long tennisCourtId) {
+        LocalDateTime retainedFrom = retainedFrom();
+        NavigableMap<LocalDateTime, LocalDateTime> intervals = new TreeMap<>();
+        // no schedule is longer than its duration, so every one ending after retainedFrom starts after this
+        scheduleRepository.findIntervalsByTennisCourt(tennisCourtId, retainedFrom.minus(Schedule.DURATION))
+                .forEach(row -> {
+                    LocalDateTime startDateTime = (LocalDateTime) row[0];
+                    LocalDateTime endDateTime = row[1] != null ? (LocalDateTime) row[1] : startDateTime.plus(Schedule.DURATION);
+                    if (endDateTime.isAfter(retainedFrom)) {
+                        intervals.put(startDateTime, endDateTime);
+                    }
+                });
+        return intervals;
+    }
+
+    private void undoOnRollback(Long tennisCourtId, LocalDateTime startDateTime) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                Lock lock = tennisCourtLocks.forCourt(tennisCourtId);
+                lock.lock();
+                try {
+                    NavigableMap<LocalDateTime, LocalDateTime> intervals = courts.get(tennisCourtId);
+                    if (intervals != null) {
+                        intervals.remove(startDateTime);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+}
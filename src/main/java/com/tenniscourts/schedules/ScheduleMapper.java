@@ -2,6 +2,7 @@ package com.tenniscourts.schedules;
 
 import org.mapstruct.InheritInverseConfiguration;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.List;
 
@@ -10,6 +11,7 @@ public interface ScheduleMapper {
     Schedule map(ScheduleDTO source);
 
     @InheritInverseConfiguration
+    @Mapping(target = "booked", ignore = true)
     ScheduleDTO map(Schedule source);
 
     List<ScheduleDTO> map(List<Schedule> source);
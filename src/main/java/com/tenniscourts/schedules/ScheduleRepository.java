@@ -1,13 +1,84 @@
 package com.tenniscourts.schedules;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
 
-    List<Schedule> findByTennisCourt_IdOrderByStartDateTime(Long id);
+    @Override
+    @EntityGraph(Schedule.WITH_TENNIS_COURT)
+    Optional<Schedule> findById(Long id);
 
-    List<Schedule> findByStartDateTimeBeforeAndEndDateTimeAfter(LocalDateTime startDate, LocalDateTime endDate);
-}
\ No newline at end of file
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Schedule> findLockedById(Long id);
+
+    @EntityGraph(Schedule.WITH_TENNIS_COURT)
+    Slice<Schedule> findByTennisCourt_IdAndStartDateTimeAfterOrderByStartDateTime(Long tennisCourtId, LocalDateTime from,
+                                                                                  Pageable pageable);
+
+    @EntityGraph(Schedule.WITH_TENNIS_COURT)
+    Slice<Schedule> findByTennisCourt_IdAndStartDateTimeAfterAndStartDateTimeBeforeOrderByStartDateTime(Long tennisCourtId,
+                                                                                                        LocalDateTime from,
+                                                                                                        LocalDateTime to,
+                                                                                                        Pageable pageable);
+
+    /**
+     * Id, start and end of the schedules of the tennis court starting from the given time on.
+     */
+    @Query("select s.id, s.startDateTime, s.endDateTime from Schedule s " +
+            "where s.tennisCourt.id = :tennisCourtId and s.startDateTime >= :from")
+    List<Object[]> findSlotsByTennisCourt(@Param("tennisCourtId") Long tennisCourtId,
+                                          @Param("from") LocalDateTime from);
+
+    @EntityGraph(Schedule.WITH_TENNIS_COURT)
+    List<Schedule> findByTennisCourt_IdAndStartDateTimeGreaterThanEqualAndStartDateTimeLessThan(Long tennisCourtId, LocalDateTime from,
+                                                                                               LocalDateTime to, Sort sort);
+
+    @EntityGraph(Schedule.WITH_TENNIS_COURT)
+    List<Schedule> findByStartDateTimeGreaterThanEqualAndStartDateTimeLessThan(LocalDateTime from, LocalDateTime to, Sort sort);
+
+    /**
+     * Schedules overlapping [from, to). The bound on the start lets the query scan a range of
+     * idx_schedule_start, which is exact because no schedule is longer than {@link Schedule#DURATION}.
+     */
+    @EntityGraph(Schedule.WITH_TENNIS_COURT)
+    @Query("select s from Schedule s " +
+            "where s.startDateTime > :earliestStart and s.startDateTime < :to and s.endDateTime > :from")
+    Slice<Schedule> findOverlapping(@Param("earliestStart") LocalDateTime earliestStart,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to,
+                                    Pageable pageable);
+
+    /**
+     * Schedules of the tennis court overlapping [from, to). H2 reads the court's rows through the
+     * index of its tennis_court_id foreign key; a database costing ranges by their bounds scans a
+     * range of uk_schedule_court_start instead.
+     */
+    @EntityGraph(Schedule.WITH_TENNIS_COURT)
+    @Query("select s from Schedule s where s.tennisCourt.id = :tennisCourtId " +
+            "and s.startDateTime > :earliestStart and s.startDateTime < :to and s.endDateTime > :from")
+    Slice<Schedule> findOverlappingByTennisCourt(@Param("tennisCourtId") Long tennisCourtId,
+                                                 @Param("earliestStart") LocalDateTime earliestStart,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to,
+                                                 Pageable pageable);
+
+    /**
+     * Start and end of the schedules of the tennis court starting after the given time.
+     */
+    @Query("select s.startDateTime, s.endDateTime from Schedule s " +
+            "where s.tennisCourt.id = :tennisCourtId and s.startDateTime > :earliestStart")
+    List<Object[]> findIntervalsByTennisCourt(@Param("tennisCourtId") Long tennisCourtId,
+                                              @Param("earliestStart") LocalDateTime earliestStart);
+}
@@ -1,36 +1,126 @@
 package com.tenniscourts.schedules;
 
+import com.tenniscourts.exceptions.AlreadyExistsEntityException;
 import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.tenniscourts.TennisCourt;
 import com.tenniscourts.tenniscourts.TennisCourtRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class ScheduleService {
+    static final int CACHED_DAYS = 7;
+
     private final TennisCourtRepository tennisCourtRepository;
     private final ScheduleRepository scheduleRepository;
+    private final ReservationRepository reservationRepository;
     private final ScheduleMapper scheduleMapper;
+    private final ScheduleDayCache scheduleDayCache;
+    private final ScheduleAvailabilityIndex scheduleAvailabilityIndex;
+    private final ScheduleIntervalIndex scheduleIntervalIndex;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     @Transactional
     public ScheduleDTO addSchedule(Long tennisCourtId, CreateScheduleRequestDTO createScheduleRequestDTO) {
-        return scheduleMapper.map(scheduleRepository.saveAndFlush(Schedule.builder()
-                        .startDateTime(createScheduleRequestDTO.getStartDateTime())
-                        .tennisCourt(tennisCourtRepository.findById(tennisCourtId)
-                                .orElseThrow(() -> new EntityNotFoundException("Tennis Court with id " + tennisCourtId + " not found.")))
-                .build()));
+        TennisCourt tennisCourt = tennisCourtRepository.findById(tennisCourtId)
+                .orElseThrow(() -> new EntityNotFoundException("Tennis Court with id " + tennisCourtId + " not found."));
+        LocalDateTime startDateTime = createScheduleRequestDTO.getStartDateTime();
+        LocalDateTime endDateTime = startDateTime.plus(Schedule.DURATION);
+
+        if (scheduleIntervalIndex.tryClaim(tennisCourtId, startDateTime, endDateTime) != ScheduleIntervalIndex.Claim.CLAIMED) {
+            throw new AlreadyExistsEntityException("Tennis Court with id " + tennisCourtId + " already has a schedule overlapping " + startDateTime + ".");
+        }
+
+        Schedule schedule;
+        try {
+            schedule = scheduleRepository.saveAndFlush(Schedule.builder()
+                    .startDateTime(startDateTime)
+                    .endDateTime(endDateTime)
+                    .tennisCourt(tennisCourt)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // created by another node, reload the court on the next claim
+            scheduleIntervalIndex.forget(tennisCourtId);
+            throw new AlreadyExistsEntityException("Tennis Court with id " + tennisCourtId + " already has a schedule starting at " + startDateTime + ".");
+        }
+        applicationEventPublisher.publishEvent(ScheduleCreatedEvent.of(schedule));
+        return scheduleMapper.map(schedule);
+    }
+
+    public List<FreeSlotDTO> findFreeSlots(Collection<Long> tennisCourtIds, LocalDateTime from, LocalDateTime to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to.");
+        }
+        return scheduleAvailabilityIndex.findFreeSlots(tennisCourtIds, from, to);
+    }
+
+    /**
+     * Schedules overlapping [startDate, endDate), optionally of a single tennis court, ordered by start.
+     * Windows of up to {@value #CACHED_DAYS} days are served from the {@link ScheduleDayCache}.
+     */
+    public Slice<ScheduleDTO> findSchedulesByDates(LocalDateTime startDate, LocalDateTime endDate, Long tennisCourtId,
+                                                   int page, int size) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate must not be after endDate.");
+        }
+
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by("startDateTime", "id"));
+        LocalDateTime earliestStart = startDate.minus(Schedule.DURATION);
+        LocalDate firstDay = earliestStart.toLocalDate();
+        LocalDate lastDay = endDate.minusNanos(1).toLocalDate();
+
+        if (ChronoUnit.DAYS.between(firstDay, lastDay) <= CACHED_DAYS) {
+            List<ScheduleDTO> schedules = Stream.iterate(firstDay, day -> day.plusDays(1))
+                    .limit(ChronoUnit.DAYS.between(firstDay, lastDay) + 1)
+                    .flatMap(day -> scheduleDayCache.findByDay(day, tennisCourtId).stream())
+                    .filter(schedule -> schedule.getStartDateTime().isAfter(earliestStart)
+                            && schedule.getStartDateTime().isBefore(endDate)
+                            && endOf(schedule).isAfter(startDate))
+                    .skip(pageRequest.getOffset())
+                    .limit(size + 1L)
+                    .collect(Collectors.toList());
+            boolean hasNext = schedules.size() > size;
+            return new SliceImpl<>(hasNext ? schedules.subList(0, size) : schedules, pageRequest, hasNext);
+        }
 
+        Slice<Schedule> schedules = Objects.isNull(tennisCourtId) ?
+                scheduleRepository.findOverlapping(earliestStart, startDate, endDate, pageRequest) :
+                scheduleRepository.findOverlappingByTennisCourt(tennisCourtId, earliestStart, startDate, endDate, pageRequest);
+        Set<Long> booked = schedules.hasContent() ?
+                reservationRepository.findReservedScheduleIds(schedules.map(Schedule::getId).getContent(), ReservationStatus.READY_TO_PLAY) :
+                Collections.emptySet();
+        return schedules.map(schedule -> {
+            ScheduleDTO scheduleDTO = scheduleMapper.map(schedule);
+            scheduleDTO.setBooked(booked.contains(schedule.getId()));
+            return scheduleDTO;
+        });
     }
 
-    public List<ScheduleDTO> findSchedulesByDates(LocalDateTime startDate, LocalDateTime endDate) {
-        return scheduleRepository.findByStartDateTimeBeforeAndEndDateTimeAfter(startDate, endDate).stream()
-                .map(scheduleMapper::map)
-                .collect(Collectors.toList());
+    private static LocalDateTime endOf(ScheduleDTO schedule) {
+        return Objects.isNull(schedule.getEndDateTime()) ?
+                schedule.getStartDateTime().plus(Schedule.DURATION) :
+                schedule.getEndDateTime();
     }
 
     public ScheduleDTO findSchedule(Long scheduleId) {
@@ -38,7 +128,16 @@ public class ScheduleService {
                 .orElseThrow(() -> new EntityNotFoundException("Schedule with id " + scheduleId + " not found.")));
     }
 
-    public List<ScheduleDTO> findSchedulesByTennisCourtId(Long tennisCourtId) {
-        return scheduleMapper.map(scheduleRepository.findByTennisCourt_IdOrderByStartDateTime(tennisCourtId));
+    /**
+     * Up to size schedules of the tennis court starting after from, and before to when given,
+     * ordered by start. The start of the last one is the from of the next page.
+     */
+    public Slice<ScheduleDTO> findSchedulesByTennisCourtId(Long tennisCourtId, LocalDateTime from, LocalDateTime to, int size) {
+        PageRequest pageRequest = PageRequest.of(0, size);
+        Slice<Schedule> schedules = Objects.isNull(to) ?
+                scheduleRepository.findByTennisCourt_IdAndStartDateTimeAfterOrderByStartDateTime(tennisCourtId, from, pageRequest) :
+                scheduleRepository.findByTennisCourt_IdAndStartDateTimeAfterAndStartDateTimeBeforeOrderByStartDateTime(
+                        tennisCourtId, from, to, pageRequest);
+        return schedules.map(scheduleMapper::map);
     }
 }
@@ -0,0 +1,301 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.reservations.ReservationEvent;
+import com.tenniscourts.reservations.ReservationEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes slot created, booked and freed events of committed transactions to Server-Sent Events
+ * subscribers, optionally filtered by tennis court and day.
+ * <p>
+ * Every subscriber has a bounded buffer that a small sender pool drains, so publishing never
+ * blocks on a client. A subscriber whose buffer overflows is disconnected and expected to
+ * reload and subscribe again, its emitter is completed by the sender that owns it and never by
+ * the publishing thread. Subscribers are indexed by court, and an idle one only holds its
+ * emitter until the next heartbeat, which also detects closed connections.
+ * <p>
+ * A send is a blocking servlet write, so the heartbeat also disconnects a subscriber whose send
+ * has been in progress longer than the write timeout and starts an extra sender in place of the
+ * one it holds, until the container gives up on the write. A stuck client can hence never take
+ * a sender away from the others.
+ */
+@Slf4j
+@Component
+public class SlotEventBroadcaster {
+    private static final String EVENT_NAME = "slot";
+
+    /**
+     * Buffered in place of a slot event to send a heartbeat comment.
+     */
+    private static final SlotEventDTO HEARTBEAT = new SlotEventDTO();
+
+    private static final long NOT_SENDING = Long.MIN_VALUE;
+
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long writeTimeoutNanos;
+    private final ThreadPoolExecutor senders;
+    private final Counter droppedSubscribers;
+
+    private final ConcurrentMap<Long, Set<Subscriber>> byTennisCourt = new ConcurrentHashMap<>();
+    private final Set<Subscriber> allTennisCourts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public SlotEventBroadcaster(MeterRegistry meterRegistry,
+                                @Value("${tenniscourts.slot-events.buffer:256}") int bufferSize,
+                                @Value("${tenniscourts.slot-events.timeout:PT30M}") Duration timeout,
+                                @Value("${tenniscourts.slot-events.senders:4}") int senders,
+                                @Value("${tenniscourts.slot-events.write-timeout:PT10S}") Duration writeTimeout) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senders, senders, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "slot-events-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.droppedSubscribers = Counter.builder("schedules.slot_events.dropped")
+                .description("Subscribers disconnected because their buffer overflowed or a send stalled")
+                .register(meterRegistry);
+        meterRegistry.gauge("schedules.slot_events.subscribers", subscribers);
+    }
+
+    /**
+     * Subscribes to the events of the tennis court, or of every court when it is null, and of
+     * slots starting on the day, or on any day when it is null.
+     */
+    public SseEmitter subscribe(Long tennisCourtId, LocalDate date) {
+        return subscribe(new SseEmitter(timeoutMillis), tennisCourtId, date);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long tennisCourtId, LocalDate date) {
+        Subscriber subscriber = new Subscriber(emitter, tennisCourtId, date, new LinkedBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+
+        subscribersOf(tennisCourtId).add(subscriber);
+        subscribers.incrementAndGet();
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleCreated(ScheduleCreatedEvent event) {
+        publish(SlotEventDTO.builder()
+                .type(SlotEventType.CREATED)
+                .scheduleId(event.getScheduleId())
+                .tennisCourtId(event.getTennisCourtId())
+                .startDateTime(event.getStartDateTime())
+                .build());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationEvent(ReservationEvent event) {
+        publish(SlotEventDTO.builder()
+                .type(event.getType() == ReservationEventType.BOOKED ? SlotEventType.BOOKED : SlotEventType.FREED)
+                .scheduleId(event.getScheduleId())
+                .tennisCourtId(event.getTennisCourtId())
+                .startDateTime(event.getStartDateTime())
+                .build());
+    }
+
+    @Scheduled(fixedDelayString = "${tenniscourts.slot-events.heartbeat:15000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        allTennisCourts.forEach(subscriber -> heartbeat(subscriber, now));
+        byTennisCourt.values().forEach(courtSubscribers ->
+                courtSubscribers.forEach(subscriber -> heartbeat(subscriber, now)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private void heartbeat(Subscriber subscriber, long now) {
+        long sendStarted = subscriber.sendStarted.get();
+        if (sendStarted != NOT_SENDING && now - sendStarted > writeTimeoutNanos) {
+            stalled(subscriber);
+        } else {
+            offer(subscriber, HEARTBEAT);
+        }
+    }
+
+    /**
+     * Disconnects the subscriber and replaces the sender blocked on its write until that write
+     * returns, the sender still completes the emitter then.
+     */
+    private synchronized void stalled(Subscriber subscriber) {
+        if (subscriber.sendStarted.get() == NOT_SENDING || !subscriber.stalled.compareAndSet(false, true)) {
+            return;
+        }
+        subscriber.overflowed.set(true);
+        if (remove(subscriber)) {
+            droppedSubscribers.increment();
+            log.debug("Disconnecting stalled slot event subscriber of tennis court {}", subscriber.tennisCourtId);
+        }
+        int size = senders.getMaximumPoolSize() + 1;
+        senders.setMaximumPoolSize(size);
+        senders.setCorePoolSize(size);
+    }
+
+    private synchronized void released(Subscriber subscriber) {
+        if (subscriber.stalled.compareAndSet(true, false)) {
+            int size = senders.getCorePoolSize() - 1;
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    int senderCount() {
+        return senders.getCorePoolSize();
+    }
+
+    private void publish(SlotEventDTO slotEvent) {
+        LocalDate date = slotEvent.getStartDateTime().toLocalDate();
+        allTennisCourts.forEach(subscriber -> {
+            if (subscriber.accepts(date)) {
+                offer(subscriber, slotEvent);
+            }
+        });
+        Set<Subscriber> courtSubscribers = byTennisCourt.get(slotEvent.getTennisCourtId());
+        if (courtSubscribers != null) {
+            courtSubscribers.forEach(subscriber -> {
+                if (subscriber.accepts(date)) {
+                    offer(subscriber, slotEvent);
+                }
+            });
+        }
+    }
+
+    private void offer(Subscriber subscriber, SlotEventDTO slotEvent) {
+        if (subscriber.removed.get()) {
+            return;
+        }
+        if (!subscriber.buffer.offer(slotEvent)) {
+            // the sender completes the emitter, it must not be touched by two threads at once
+            subscriber.overflowed.set(true);
+            if (remove(subscriber)) {
+                droppedSubscribers.increment();
+                log.debug("Disconnecting slow slot event subscriber of tennis court {}", subscriber.tennisCourtId);
+            }
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    /**
+     * Sends the buffered events of the subscriber, only ever run by one sender at a time. Every
+     * send builds its own event, the builders are not safe to share between threads.
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            do {
+                SlotEventDTO slotEvent;
+                while (!subscriber.overflowed.get() && (slotEvent = subscriber.buffer.poll()) != null) {
+                    subscriber.sendStarted.set(System.nanoTime());
+                    try {
+                        subscriber.emitter.send(toSseEvent(slotEvent));
+                    } finally {
+                        subscriber.sendStarted.set(NOT_SENDING);
+                    }
+                }
+                if (subscriber.overflowed.get()) {
+                    subscriber.buffer.clear();
+                    subscriber.emitter.complete();
+                    return;
+                }
+                subscriber.draining.set(false);
+                // an event offered after the last poll but before the flag was cleared is drained here
+            } while ((!subscriber.buffer.isEmpty() || subscriber.overflowed.get())
+                    && subscriber.draining.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            // the client went away, its emitter is already completed
+            discard(subscriber);
+        } catch (RuntimeException e) {
+            log.warn("Failed to send a slot event to a subscriber of tennis court {}", subscriber.tennisCourtId, e);
+            discard(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            released(subscriber);
+        }
+    }
+
+    private void discard(Subscriber subscriber) {
+        remove(subscriber);
+        subscriber.buffer.clear();
+        subscriber.draining.set(false);
+    }
+
+    private static SseEmitter.SseEventBuilder toSseEvent(SlotEventDTO slotEvent) {
+        return slotEvent == HEARTBEAT ?
+                SseEmitter.event().comment("heartbeat") :
+                SseEmitter.event().name(EVENT_NAME).data(slotEvent, MediaType.APPLICATION_JSON);
+    }
+
+    private Set<Subscriber> subscribersOf(Long tennisCourtId) {
+        return Objects.isNull(tennisCourtId) ?
+                allTennisCourts :
+                byTennisCourt.computeIfAbsent(tennisCourtId, id -> ConcurrentHashMap.newKeySet());
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.removed.compareAndSet(false, true)) {
+            return false;
+        }
+        // the emptied set of a court is kept, courts are few and a concurrent subscribe may hold it
+        subscribersOf(subscriber.tennisCourtId).remove(subscriber);
+        subscribers.decrementAndGet();
+        return true;
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Long tennisCourtId;
+        private final LocalDate date;
+        private final Queue<SlotEventDTO> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        private final AtomicLong sendStarted = new AtomicLong(NOT_SENDING);
+
+        private Subscriber(SseEmitter emitter, Long tennisCourtId, LocalDate date, Queue<SlotEventDTO> buffer) {
+            this.emitter = emitter;
+            this.tennisCourtId = tennisCourtId;
+            this.date = date;
+            this.buffer = buffer;
+        }
+
+        private boolean accepts(LocalDate eventDate) {
+            return date == null || date.equals(eventDate);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.tenniscourts.schedules;
+
+public enum SlotEventType {
+  CREATED,
+  BOOKED,
+  FREED
+}
@@ -7,13 +7,18 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = TennisCourt.CACHE_REGION)
 @Table
 @Getter
 @Setter
@@ -23,6 +28,8 @@ import javax.validation.constraints.NotNull;
 @ToString
 public class TennisCourt extends BaseEntity<Long> {
 
+    public static final String CACHE_REGION = "tennisCourts";
+
     @Column
     @NotNull
     private String name;
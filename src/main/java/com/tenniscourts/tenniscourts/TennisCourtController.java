@@ -7,12 +7,18 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.time.LocalDateTime;
 
 @RequiredArgsConstructor
 @RestController
@@ -49,7 +55,10 @@ public class TennisCourtController extends BaseRestController {
         return ResponseEntity.ok(tennisCourtService.findTennisCourtById(tennisCourtId));
     }
 
-    @ApiOperation(value = "Get a tennis court by id", response = TennisCourtDTO.class,
+    @ApiOperation(value = "Get a tennis court by id with a page of its schedules", response = TennisCourtDTO.class,
+            notes = "Embeds the schedules starting after from, by default now, and before to when given, ordered by start. " +
+                    "When more follow, nextSchedulesFrom holds the from of the next page and a Link header with " +
+                    "rel=\"next\" points to it.",
             consumes = "application/json", produces = "application/json")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successfully obtained the court white it schedules", response = TennisCourtDTO.class),
@@ -59,7 +68,18 @@ public class TennisCourtController extends BaseRestController {
             @ApiResponse(code = 500, message = "Internal Server Error", response = ErrorDetails.class)
     })
     @GetMapping("/{id}/schedules")
-    public ResponseEntity<TennisCourtDTO> findTennisCourtWithSchedulesById(@PathVariable(value = "id") @Valid Long tennisCourtId) {
-        return ResponseEntity.ok(tennisCourtService.findTennisCourtWithSchedulesById(tennisCourtId));
+    public ResponseEntity<TennisCourtDTO> findTennisCourtWithSchedulesById(
+            @PathVariable(value = "id") @Valid Long tennisCourtId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "size", defaultValue = "50") @Min(1) @Max(500) int size) {
+        TennisCourtDTO tennisCourt = tennisCourtService.findTennisCourtWithSchedulesById(tennisCourtId, from, to, size);
+        if (tennisCourt.getNextSchedulesFrom() == null) {
+            return ResponseEntity.ok(tennisCourt);
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQueryParam("from", tennisCourt.getNextSchedulesFrom()).toUriString() + ">; rel=\"next\"")
+                .body(tennisCourt);
     }
 }
@@ -9,6 +9,7 @@ import lombok.Setter;
 import lombok.ToString;
 
 import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Getter
@@ -26,4 +27,10 @@ public class TennisCourtDTO {
 
     private List<ScheduleDTO> tennisCourtSchedules;
 
+    /**
+     * Written as a full ISO timestamp: a cursor cut to the minute would repeat a schedule
+     * starting within that minute on the next page.
+     */
+    private LocalDateTime nextSchedulesFrom;
+
 }
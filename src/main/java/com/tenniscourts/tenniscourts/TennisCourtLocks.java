@@ -0,0 +1,48 @@
+package com.tenniscourts.tenniscourts;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Striped locks keyed by tennis court id, so work on different courts never contends.
+ */
+@Component
+public class TennisCourtLocks {
+
+    private static final int STRIPES = 64;
+
+    private final Lock[] stripes = new Lock[STRIPES];
+
+    public TennisCourtLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock forCourt(Long tennisCourtId) {
+        return stripes[stripeOf(tennisCourtId)];
+    }
+
+    /**
+     * Returns the distinct stripes guarding the given courts in a stable order, so callers
+     * acquiring them one after another cannot deadlock each other.
+     */
+    public List<Lock> forCourts(Collection<Long> tennisCourtIds) {
+        return tennisCourtIds.stream()
+                .map(this::stripeOf)
+                .distinct()
+                .sorted()
+                .map(stripe -> stripes[stripe])
+                .collect(Collectors.toList());
+    }
+
+    private int stripeOf(Long tennisCourtId) {
+        long hash = tennisCourtId * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 58) & (STRIPES - 1);
+    }
+}
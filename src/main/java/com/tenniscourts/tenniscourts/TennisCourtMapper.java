@@ -2,9 +2,11 @@ package com.tenniscourts.tenniscourts;
 
 import org.mapstruct.InheritInverseConfiguration;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface TennisCourtMapper {
+    @Mapping(target = "nextSchedulesFrom", ignore = true)
     TennisCourtDTO map(TennisCourt source);
 
     @InheritInverseConfiguration
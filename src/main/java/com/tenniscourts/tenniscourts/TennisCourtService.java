@@ -1,10 +1,16 @@
 package com.tenniscourts.tenniscourts;
 
 import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.schedules.ScheduleDTO;
 import com.tenniscourts.schedules.ScheduleService;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
 @Service
 @AllArgsConstructor
 public class TennisCourtService {
@@ -15,6 +21,8 @@ public class TennisCourtService {
 
     private final TennisCourtMapper tennisCourtMapper;
 
+    private final Clock clock;
+
     public TennisCourtDTO addTennisCourt(TennisCourtDTO tennisCourt) {
         return tennisCourtMapper.map(tennisCourtRepository.saveAndFlush(tennisCourtMapper.map(tennisCourt)));
     }
@@ -25,9 +33,18 @@ public class TennisCourtService {
         });
     }
 
-    public TennisCourtDTO findTennisCourtWithSchedulesById(Long tennisCourtId) {
+    /**
+     * The tennis court with a page of its schedules starting after from, upcoming ones when no
+     * from is given, and before to when given. nextSchedulesFrom is set when more schedules follow.
+     */
+    public TennisCourtDTO findTennisCourtWithSchedulesById(Long tennisCourtId, LocalDateTime from, LocalDateTime to, int size) {
         TennisCourtDTO tennisCourtDTO = findTennisCourtById(tennisCourtId);
-        tennisCourtDTO.setTennisCourtSchedules(scheduleService.findSchedulesByTennisCourtId(tennisCourtId));
+        Slice<ScheduleDTO> schedules = scheduleService.findSchedulesByTennisCourtId(tennisCourtId,
+                Objects.isNull(from) ? LocalDateTime.now(clock) : from, to, size);
+        tennisCourtDTO.setTennisCourtSchedules(schedules.getContent());
+        if (schedules.hasNext()) {
+            tennisCourtDTO.setNextSchedulesFrom(schedules.getContent().get(schedules.getNumberOfElements() - 1).getStartDateTime());
+        }
         return tennisCourtDTO;
     }
 }
@@ -0,0 +1,176 @@
+package com.tenniscourts;
+
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the number of SQL statements each read endpoint issues, so an association that starts
+ * loading row by row again fails the build. Every fixture holds several rows per association.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class EndpointStatementCountTest {
+
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2030, 1, 10, 8, 0);
+
+    private static final int SCHEDULES = 5;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TennisCourtRepository tennisCourtRepository;
+
+    @Autowired
+    ScheduleRepository scheduleRepository;
+
+    @Autowired
+    GuestRepository guestRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    private Statistics statistics;
+
+    private Long tennisCourtId;
+
+    private List<Long> scheduleIds;
+
+    private List<Long> reservationIds;
+
+    private List<Long> guestIds;
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            TennisCourt tennisCourt = new TennisCourt();
+            tennisCourt.setName("Statement count court");
+            tennisCourtId = tennisCourtRepository.save(tennisCourt).getId();
+
+            scheduleIds = new ArrayList<>();
+            reservationIds = new ArrayList<>();
+            guestIds = new ArrayList<>();
+            for (int i = 0; i < SCHEDULES; i++) {
+                Schedule schedule = scheduleRepository.save(Schedule.builder()
+                        .tennisCourt(tennisCourt)
+                        .startDateTime(FIRST_START.plusHours(i))
+                        .endDateTime(FIRST_START.plusHours(i + 1))
+                        .build());
+                scheduleIds.add(schedule.getId());
+
+                Guest guest = guestRepository.save(Guest.builder().name("Guest " + i).build());
+                guestIds.add(guest.getId());
+                reservationIds.add(reservationRepository.save(Reservation.builder()
+                        .guest(guest)
+                        .schedule(schedule)
+                        .value(BigDecimal.TEN)
+                        .reservationStatus(ReservationStatus.READY_TO_PLAY)
+                        .build()).getId());
+            }
+            return null;
+        });
+        // counts are asserted from a cold second-level cache, the warm reads are asserted where they are cached
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    public void findGuest() throws Exception {
+        String url = "/api/v1/guests/" + guestIds.get(0);
+
+        assertStatements(1, url);
+        assertStatements(0, url);
+    }
+
+    @Test
+    public void findGuests() throws Exception {
+        assertStatements(1, "/api/v1/guests");
+    }
+
+    @Test
+    public void findGuestsByName() throws Exception {
+        String url = "/api/v1/guests?name=Guest 0";
+
+        assertStatements(1, url);
+        assertStatements(0, url);
+    }
+
+    @Test
+    public void findReservation() throws Exception {
+        assertStatements(1, "/api/v1/reservations/" + reservationIds.get(0));
+    }
+
+    @Test
+    public void findSchedule() throws Exception {
+        assertStatements(1, "/api/v1/schedules/" + scheduleIds.get(0));
+    }
+
+    @Test
+    public void findSchedulesByDates() throws Exception {
+        String day = FIRST_START.toLocalDate().toString();
+        String url = "/api/v1/schedules?startDate=" + day + "&endDate=" + day + "&tennisCourtId=" + tennisCourtId;
+
+        // schedules of the day before, schedules of the day and their reservations
+        assertStatements(3, url);
+        assertStatements(0, url);
+    }
+
+    @Test
+    public void findTennisCourt() throws Exception {
+        String url = "/api/v1/courts/" + tennisCourtId;
+
+        assertStatements(1, url);
+        assertStatements(0, url);
+    }
+
+    @Test
+    public void findTennisCourtWithSchedules() throws Exception {
+        assertStatements(2, "/api/v1/courts/" + tennisCourtId + "/schedules");
+    }
+
+    private void assertStatements(long expected, String url) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        Assert.assertEquals("Statements issued by GET " + url, expected, statistics.getPrepareStatementCount());
+    }
+}
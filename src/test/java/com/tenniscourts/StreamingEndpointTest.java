@@ -0,0 +1,191 @@
+package com.tenniscourts;
+
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItems;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Streams every endpoint that writes its response from the async executor through to the end,
+ * and checks the stream may run for the configured async timeout instead of the container's default.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StreamingEndpointTest {
+
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2031, 3, 10, 8, 0);
+
+    private static final int SCHEDULES = 3;
+
+    private static final long ASYNC_TIMEOUT = Duration.ofHours(1).toMillis();
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    TennisCourtRepository tennisCourtRepository;
+
+    @Autowired
+    ScheduleRepository scheduleRepository;
+
+    @Autowired
+    GuestRepository guestRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    private Long tennisCourtId;
+
+    private List<Long> guestIds;
+
+    private List<Integer> reservationIds;
+
+    @Before
+    public void setUp() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            TennisCourt tennisCourt = new TennisCourt();
+            tennisCourt.setName("Streaming court");
+            tennisCourtId = tennisCourtRepository.save(tennisCourt).getId();
+
+            guestIds = new ArrayList<>();
+            reservationIds = new ArrayList<>();
+            for (int i = 0; i < SCHEDULES; i++) {
+                Schedule schedule = scheduleRepository.save(Schedule.builder()
+                        .tennisCourt(tennisCourt)
+                        .startDateTime(FIRST_START.plusHours(i))
+                        .endDateTime(FIRST_START.plusHours(i + 1))
+                        .build());
+                Guest guest = guestRepository.save(Guest.builder().name("Streaming guest " + i).build());
+                guestIds.add(guest.getId());
+                reservationIds.add(Math.toIntExact(reservationRepository.save(Reservation.builder()
+                        .guest(guest)
+                        .schedule(schedule)
+                        .value(BigDecimal.TEN)
+                        .reservationStatus(ReservationStatus.READY_TO_PLAY)
+                        .build()).getId()));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void exportGuests() throws Exception {
+        entityManagerFactory.getCache().evictAll();
+        MvcResult result = startStream("/api/v1/guests/export");
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"name\":\"Streaming guest " + (SCHEDULES - 1) + "\"")));
+        for (Long guestId : guestIds) {
+            Assert.assertFalse("Exported guest " + guestId + " cached", entityManagerFactory.getCache().contains(Guest.class, guestId));
+        }
+        // the guests are read by the async executor, not by the request thread
+        DistributionSummary statements = meterRegistry.find("http.controller.hibernate.statements")
+                .tag("controller", "GuestController").tag("method", "export").summary();
+        Assert.assertNotNull(statements);
+        Assert.assertTrue(statements.totalAmount() > 0);
+    }
+
+    @Test
+    public void findReservationHistory() throws Exception {
+        MvcResult result = startStream("/api/v1/reservations/history?from=" + FIRST_START
+                + "&to=" + FIRST_START.plusHours(SCHEDULES));
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", hasItems(reservationIds.toArray(new Integer[0]))));
+    }
+
+    @Test
+    public void generateSchedules() throws Exception {
+        LocalDate day = FIRST_START.toLocalDate().plusDays(1);
+        MvcResult result = startStream(post("/api/v1/schedules/templates")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(template(day, day)));
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"daysDone\":1")));
+    }
+
+    @Test
+    public void generateSchedulesRejectsATemplateBeforeStreaming() throws Exception {
+        LocalDate day = FIRST_START.toLocalDate();
+
+        mockMvc.perform(post("/api/v1/schedules/templates")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(template(day, day.minusDays(1))))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest());
+    }
+
+    private String template(LocalDate startDate, LocalDate endDate) {
+        return "{\"tennisCourtIds\":[" + tennisCourtId + "],\"startDate\":\"" + startDate + "\",\"endDate\":\"" + endDate
+                + "\",\"openingTime\":\"08:00\",\"closingTime\":\"10:00\"}";
+    }
+
+    private MvcResult startStream(String url) throws Exception {
+        return startStream(get(url));
+    }
+
+    private MvcResult startStream(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Assert.assertEquals("Async timeout of " + result.getRequest().getRequestURI(), ASYNC_TIMEOUT,
+                result.getRequest().getAsyncContext().getTimeout());
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+package com.tenniscourts.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+public class AuditJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fullSegmentsRollOver() throws Exception {
+        // room for four records of the shape below per segment
+        append(DataSize.ofBytes(256), 1, 10);
+
+        List<Path> segments = AuditJournalFormat.segments(folder.getRoot().toPath());
+        Assert.assertEquals(3, segments.size());
+        Assert.assertEquals(5, AuditJournalFormat.firstSequence(segments.get(1)));
+        Assert.assertEquals(9, AuditJournalFormat.firstSequence(segments.get(2)));
+        Assert.assertEquals(LongStream.rangeClosed(6, 10).boxed().collect(Collectors.toList()), sequences(6));
+    }
+
+    @Test
+    public void reopenedJournalContinuesTheSequence() throws Exception {
+        append(DataSize.ofBytes(256), 1, 6);
+        append(DataSize.ofBytes(256), 7, 10);
+
+        List<AuditRecordDTO> records = replay(1);
+        Assert.assertEquals(LongStream.rangeClosed(1, 10).boxed().collect(Collectors.toList()), sequences(1));
+        Assert.assertEquals(LongStream.rangeClosed(1, 10).boxed().collect(Collectors.toList()),
+                records.stream().map(AuditRecordDTO::getEntityId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void tornTailIsDiscardedOnReopen() throws Exception {
+        append(DataSize.ofKilobytes(4), 1, 3);
+
+        Path segment = AuditJournalFormat.segments(folder.getRoot().toPath()).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            AuditJournalFormat.read(buffer);
+            int length = buffer.position();
+            AuditJournalFormat.read(buffer);
+            AuditJournalFormat.read(buffer);
+            int end = buffer.position();
+
+            // a crash left a record with a bad checksum, followed by stale bytes of a whole record
+            byte[] records = new byte[2 * length];
+            buffer.position(0);
+            buffer.get(records);
+            buffer.position(end);
+            buffer.put(records);
+            buffer.putInt(end + 4, buffer.getInt(end + 4) ^ 1);
+            buffer.force();
+        }
+        Assert.assertEquals(3, replay(1).size());
+
+        // the next record takes the place of the torn one, the stale record after it must not reappear
+        append(DataSize.ofKilobytes(4), 4, 4);
+
+        Assert.assertEquals(LongStream.rangeClosed(1, 4).boxed().collect(Collectors.toList()), sequences(1));
+        Assert.assertEquals(Long.valueOf(4), replay(4).get(0).getEntityId());
+    }
+
+    @Test
+    public void historyStartsAtTheGivenSequence() throws Exception {
+        append(DataSize.ofBytes(256), 1, 10);
+
+        AuditJournalReader auditJournalReader = new AuditJournalReader(folder.getRoot().getPath());
+        Assert.assertEquals(1, auditJournalReader.history("Guest", 2L, 0).size());
+        Assert.assertTrue(auditJournalReader.history("Guest", 2L, 5).isEmpty());
+        Assert.assertEquals(Long.valueOf(9), auditJournalReader.history("Guest", 9L, 5).get(0).getSequence());
+    }
+
+    /**
+     * Opens the journal, appends records for the entity ids and shuts it down, which writes them.
+     */
+    private void append(DataSize segmentSize, long fromEntityId, long toEntityId) throws Exception {
+        AuditJournal auditJournal = new AuditJournal(new SimpleMeterRegistry(), folder.getRoot().getPath(),
+                segmentSize, 16, 1024, Duration.ofMillis(10));
+        for (long entityId = fromEntityId; entityId <= toEntityId; entityId++) {
+            auditJournal.append(AuditRecordDTO.builder()
+                    .entityType("Guest")
+                    .entityId(entityId)
+                    .action(AuditAction.UPDATED)
+                    .dateTime(LocalDateTime.of(2020, 6, 1, 10, 0))
+                    .userId(42L)
+                    .ipNumber("192.0.2.7")
+                    .build());
+        }
+        auditJournal.shutdown();
+    }
+
+    private List<AuditRecordDTO> replay(long fromSequence) throws IOException {
+        List<AuditRecordDTO> records = new ArrayList<>();
+        new AuditJournalReader(folder.getRoot().getPath()).replay(fromSequence, records::add);
+        return records;
+    }
+
+    private List<Long> sequences(long fromSequence) throws IOException {
+        return replay(fromSequence).stream().map(AuditRecordDTO::getSequence).collect(Collectors.toList());
+    }
+}
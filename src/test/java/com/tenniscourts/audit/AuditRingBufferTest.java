@@ -0,0 +1,58 @@
+package com.tenniscourts.audit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AuditRingBufferTest {
+
+    @Test
+    public void fullBufferRefusesElements() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        for (int i = 1; i <= 4; i++) {
+            Assert.assertTrue(buffer.offer(i));
+        }
+
+        Assert.assertFalse(buffer.offer(5));
+        Assert.assertEquals(4, buffer.size());
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4), drain(buffer, 10));
+        Assert.assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void slotsAreReusedAfterWrappingAround() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        for (int i = 1; i <= 3; i++) {
+            buffer.offer(i);
+        }
+        Assert.assertEquals(Arrays.asList(1, 2), drain(buffer, 2));
+
+        // the tail wraps around past the slots the drain released
+        for (int i = 4; i <= 6; i++) {
+            Assert.assertTrue(buffer.offer(i));
+        }
+        Assert.assertFalse(buffer.offer(7));
+        Assert.assertEquals(Arrays.asList(3, 4, 5, 6), drain(buffer, 10));
+
+        for (int round = 0; round < 10; round++) {
+            Assert.assertTrue(buffer.offer(round));
+            Assert.assertEquals(Collections.singletonList(round), drain(buffer, 10));
+        }
+        Assert.assertTrue(buffer.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBeAPowerOfTwo() {
+        new AuditRingBuffer<Integer>(6);
+    }
+
+    private static List<Integer> drain(AuditRingBuffer<Integer> buffer, int max) {
+        List<Integer> drained = new ArrayList<>();
+        buffer.drain(max, drained::add);
+        return drained;
+    }
+}
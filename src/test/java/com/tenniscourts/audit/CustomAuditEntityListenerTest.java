@@ -0,0 +1,55 @@
+package com.tenniscourts.audit;
+
+import com.tenniscourts.guests.Guest;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CustomAuditEntityListenerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 6, 1, 10, 0);
+
+    @Mock
+    AuditContext auditContext;
+
+    @Mock
+    AuditJournal auditJournal;
+
+    CustomAuditEntityListener customAuditEntityListener;
+
+    @Before
+    public void setUp() {
+        customAuditEntityListener = new CustomAuditEntityListener(Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC),
+                auditContext, auditJournal);
+        when(auditContext.userId()).thenReturn(42L);
+        when(auditContext.clientAddress()).thenReturn("192.0.2.7");
+    }
+
+    @Test
+    public void updateIsStampedOverThePreviousWriter() {
+        Guest guest = Guest.builder().name("Roger").build();
+        guest.setUserCreate(5L);
+        guest.setIpNumberCreate("198.51.100.1");
+        guest.setUserUpdate(5L);
+        guest.setIpNumberUpdate("198.51.100.1");
+        guest.setDateUpdate(NOW.minusDays(1));
+
+        customAuditEntityListener.preUpdate(guest);
+
+        Assert.assertEquals(Long.valueOf(42L), guest.getUserUpdate());
+        Assert.assertEquals("192.0.2.7", guest.getIpNumberUpdate());
+        Assert.assertEquals(NOW, guest.getDateUpdate());
+        Assert.assertEquals(Long.valueOf(5L), guest.getUserCreate());
+        Assert.assertEquals("198.51.100.1", guest.getIpNumberCreate());
+    }
+}
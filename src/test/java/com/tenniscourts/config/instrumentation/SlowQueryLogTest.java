@@ -0,0 +1,31 @@
+package com.tenniscourts.config.instrumentation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.Arrays;
+
+public class SlowQueryLogTest {
+
+    private static final Object[] PARAMETERS = {"Roger Federer", 5L, null};
+
+    @Test
+    public void bindValuesAreMaskedByDefault() {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(Clock.systemUTC(), new SimpleMeterRegistry(), 10, false);
+
+        slowQueryLog.capture("select * from guest where name = ? and id = ? and ip_number_create = ?", PARAMETERS, 0, 1);
+
+        Assert.assertEquals(Arrays.asList("<String>", "<Long>", "null"), slowQueryLog.recent().get(0).getParameters());
+    }
+
+    @Test
+    public void bindValuesAreKeptWhenCaptureIsOn() {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(Clock.systemUTC(), new SimpleMeterRegistry(), 10, true);
+
+        slowQueryLog.capture("select * from guest where name = ? and id = ? and ip_number_create = ?", PARAMETERS, 0, 1);
+
+        Assert.assertEquals(Arrays.asList("'Roger Federer'", "5", "null"), slowQueryLog.recent().get(0).getParameters());
+    }
+}
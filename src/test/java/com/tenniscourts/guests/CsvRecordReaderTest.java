@@ -0,0 +1,72 @@
+package com.tenniscourts.guests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CsvRecordReaderTest {
+
+    @Test
+    public void quotedFieldsMayHoldCommasAndDoubledQuotes() throws IOException {
+        CsvRecordReader records = reader("id,name\n1,\"Federer, Roger\"\n2,\"Rafael \"\"Rafa\"\" Nadal\",\n");
+
+        Assert.assertEquals(Arrays.asList("id", "name"), records.next());
+        Assert.assertEquals(Arrays.asList("1", "Federer, Roger"), records.next());
+        Assert.assertEquals(Arrays.asList("2", "Rafael \"Rafa\" Nadal", ""), records.next());
+        Assert.assertNull(records.next());
+    }
+
+    @Test
+    public void recordsMayEndWithCrLf() throws IOException {
+        CsvRecordReader records = reader("name\r\nRoger\r\n\r\nRafael");
+
+        Assert.assertEquals(Collections.singletonList("name"), records.next());
+        Assert.assertEquals(Collections.singletonList("Roger"), records.next());
+        Assert.assertEquals(2, records.getRecordLine());
+        Assert.assertEquals(Collections.singletonList(""), records.next());
+        Assert.assertEquals(Collections.singletonList("Rafael"), records.next());
+        Assert.assertEquals(4, records.getRecordLine());
+        Assert.assertNull(records.next());
+    }
+
+    @Test
+    public void quotedFieldsMaySpanLines() throws IOException {
+        CsvRecordReader records = reader("name,note\n\"Roger\",\"first line\r\nsecond line\"\nRafael,none\n");
+
+        Assert.assertEquals(Arrays.asList("name", "note"), records.next());
+        Assert.assertEquals(Arrays.asList("Roger", "first line\r\nsecond line"), records.next());
+        Assert.assertEquals(2, records.getRecordLine());
+        Assert.assertEquals(Arrays.asList("Rafael", "none"), records.next());
+        Assert.assertEquals(4, records.getRecordLine());
+    }
+
+    @Test
+    public void unterminatedQuoteIsReportedWithItsLine() throws IOException {
+        CsvRecordReader records = reader("name\nRoger\n\"Rafael\nNovak\n");
+        records.next();
+        records.next();
+
+        try {
+            records.next();
+            Assert.fail("An unterminated quote must not be read as a field.");
+        } catch (IOException expected) {
+            Assert.assertEquals("Unterminated quoted field starting on line 3.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void byteOrderMarkIsSkipped() throws IOException {
+        CsvRecordReader records = reader(CsvRecordReader.BYTE_ORDER_MARK + "name\nRoger\n");
+
+        Assert.assertEquals(Collections.singletonList("name"), records.next());
+        Assert.assertEquals(Collections.singletonList("Roger"), records.next());
+    }
+
+    private static CsvRecordReader reader(String csv) {
+        return new CsvRecordReader(new StringReader(csv));
+    }
+}
@@ -0,0 +1,72 @@
+package com.tenniscourts.guests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GuestImporterTest {
+
+    @Mock
+    GuestRepository guestRepository;
+
+    @Mock
+    GuestSearchIndex guestSearchIndex;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    List<String> savedNames = new ArrayList<>();
+
+    GuestImporter guestImporter;
+
+    @Before
+    public void setUp() {
+        when(guestRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            // the importer reuses its chunk list, so the names are read while it is saved
+            invocation.<Iterable<Guest>>getArgument(0).forEach(guest -> savedNames.add(guest.getName()));
+            return invocation.getArgument(0);
+        });
+        guestImporter = new GuestImporter(guestRepository, new GuestMapper(), guestSearchIndex,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), entityManager,
+                transactionManager, 500, 1000);
+    }
+
+    @Test
+    public void csvHeaderAfterAByteOrderMarkIsFound() throws IOException {
+        GuestImportReportDTO report = guestImporter.importCsv(new StringReader(CsvRecordReader.BYTE_ORDER_MARK + "name\r\nRoger\r\nRafael\r\n"));
+
+        Assert.assertEquals(2, report.getImported());
+        Assert.assertEquals(Arrays.asList("Roger", "Rafael"), savedNames);
+    }
+
+    @Test
+    public void nullNdjsonRowIsRejected() throws IOException {
+        GuestImportReportDTO report = guestImporter.importNdjson(new StringReader(
+                CsvRecordReader.BYTE_ORDER_MARK + "{\"name\":\"Roger\"}\nnull\n{\"name\":\"Rafael\"}\n"));
+
+        Assert.assertEquals(2, report.getImported());
+        Assert.assertEquals(1, report.getRejected());
+        Assert.assertEquals(2, report.getErrors().get(0).getLine());
+        Assert.assertEquals(Arrays.asList("Roger", "Rafael"), savedNames);
+    }
+}
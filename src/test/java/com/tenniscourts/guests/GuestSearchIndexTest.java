@@ -0,0 +1,99 @@
+package com.tenniscourts.guests;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+public class GuestSearchIndexTest {
+
+    GuestSearchIndex guestSearchIndex;
+
+    @Before
+    public void setUp() {
+        guestSearchIndex = new GuestSearchIndex(null, null);
+        guestSearchIndex.load(Stream.of(
+                new Object[]{1L, "Roger Federer"},
+                new Object[]{2L, "Rafael Nadal"},
+                new Object[]{3L, "Jos\u00e9 Rodr\u00edguez"},
+                new Object[]{4L, "Roger Fedorov"}));
+    }
+
+    @Test
+    public void searchMatchesTheStartOfTheLastWord() {
+        Assert.assertEquals(Arrays.asList(1L, 4L), ids("rog"));
+        Assert.assertEquals(Arrays.asList(1L, 4L), ids("Roger Fed"));
+        Assert.assertEquals(Collections.singletonList(1L), ids("roger fede"));
+        Assert.assertEquals(Collections.singletonList(3L), ids("jose rodr"));
+        Assert.assertTrue(ids("serena").isEmpty());
+    }
+
+    @Test
+    public void searchToleratesTypos() {
+        Assert.assertEquals(1L, (long) ids("Roger Fedrer").get(0));
+        Assert.assertEquals(2L, (long) ids("Rafael Nadel").get(0));
+        Assert.assertEquals(3L, (long) ids("Jose Rodriguex").get(0));
+    }
+
+    @Test
+    public void renamedGuestIsOnlyFoundByItsNewName() {
+        guestSearchIndex.put(2L, "Novak Djokovic");
+
+        Assert.assertTrue(ids("nadal").isEmpty());
+        Assert.assertEquals(Collections.singletonList(2L), ids("djoko"));
+        Assert.assertEquals("Novak Djokovic", guestSearchIndex.search("novak", 1).get(0).getName());
+    }
+
+    @Test
+    public void deletedGuestIsNotFound() {
+        guestSearchIndex.remove(1L);
+
+        Assert.assertEquals(Collections.singletonList(4L), ids("roger"));
+    }
+
+    @Test
+    public void renamesCompactTheIndex() {
+        int guests = GuestSearchIndex.MIN_REMOVED_TO_COMPACT + 100;
+        guestSearchIndex.load(LongStream.rangeClosed(1, guests).mapToObj(id -> new Object[]{id, "first " + id}));
+
+        for (long id = 1; id <= guests; id++) {
+            guestSearchIndex.put(id, "second " + id);
+        }
+        Assert.assertEquals(2 * guests, guestSearchIndex.ordinals());
+        // one more dead ordinal than live ones
+        guestSearchIndex.put(1L, "third 1");
+
+        Assert.assertEquals(guests, guestSearchIndex.ordinals());
+        Assert.assertEquals(Collections.singletonList(1L), ids("third 1"));
+        Assert.assertEquals(2L, (long) ids("second 2").get(0));
+        Assert.assertTrue(ids("first").isEmpty());
+    }
+
+    @Test
+    public void deletesCompactTheIndex() {
+        int guests = 2 * GuestSearchIndex.MIN_REMOVED_TO_COMPACT;
+        guestSearchIndex.load(LongStream.rangeClosed(1, guests).mapToObj(id -> new Object[]{id, "guest " + id}));
+
+        for (long id = 1; id <= guests / 2; id++) {
+            guestSearchIndex.remove(id);
+        }
+        Assert.assertEquals(guests, guestSearchIndex.ordinals());
+        guestSearchIndex.remove(guests / 2 + 1L);
+
+        Assert.assertEquals(guests / 2 - 1, guestSearchIndex.ordinals());
+        Assert.assertFalse(ids("guest " + guests / 2).contains((long) guests / 2));
+        Assert.assertEquals((long) guests, (long) ids("guest " + guests).get(0));
+    }
+
+    private List<Long> ids(String query) {
+        return guestSearchIndex.search(query, 10).stream()
+                .map(GuestDTO::getId)
+                .collect(Collectors.toList());
+    }
+}
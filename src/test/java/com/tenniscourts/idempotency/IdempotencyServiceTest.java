@@ -0,0 +1,177 @@
+package com.tenniscourts.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tenniscourts.exceptions.AlreadyExistsEntityException;
+import com.tenniscourts.guests.GuestDTO;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IdempotencyServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 6, 1, 10, 0);
+
+    private static final Clock CLOCK = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    private static final String KEY = "9d1c3a4e";
+
+    @Mock
+    IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    IdempotencyService idempotencyService;
+
+    @Before
+    public void setUp() {
+        idempotencyService = newService();
+    }
+
+    @Test
+    public void concurrentRequestsWithTheSameKeyRunOnce() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<GuestDTO>> first = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute(KEY, "create", GuestDTO.class, () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(finish);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(new GuestDTO(1L, "Roger"));
+                }));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<ResponseEntity<GuestDTO>> second = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute(KEY, "create", GuestDTO.class, () -> {
+                    executions.incrementAndGet();
+                    return ResponseEntity.status(HttpStatus.CREATED).body(new GuestDTO(2L, "Rafael"));
+                }));
+        Thread.sleep(100);
+        finish.countDown();
+
+        Assert.assertNull(first.get(10, TimeUnit.SECONDS).getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        ResponseEntity<GuestDTO> replayed = second.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(1, executions.get());
+        Assert.assertEquals(HttpStatus.CREATED, replayed.getStatusCode());
+        Assert.assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        Assert.assertEquals(new GuestDTO(1L, "Roger"), replayed.getBody());
+        verify(idempotencyRecordRepository).saveAndFlush(any(IdempotencyRecord.class));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void keyClaimedByAnotherNodeReplaysItsStoredResponse() {
+        SimpleTransactionStatus transaction = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate idempotency key"));
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(eq(KEY), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty(), Optional.of(IdempotencyRecord.builder()
+                        .idempotencyKey(KEY)
+                        .scope("create")
+                        .statusCode(HttpStatus.CREATED.value())
+                        .body("{\"id\":2,\"name\":\"Rafael\"}")
+                        .expiresAt(NOW.plusHours(1))
+                        .build()));
+
+        ResponseEntity<GuestDTO> replayed = idempotencyService.execute(KEY, "create", GuestDTO.class, () -> {
+            throw new AssertionError("A request claimed by another node must not run.");
+        });
+
+        Assert.assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        Assert.assertEquals(new GuestDTO(2L, "Rafael"), replayed.getBody());
+        Assert.assertTrue(transaction.isRollbackOnly());
+    }
+
+    @Test
+    public void keyStillRunningOnAnotherNodeIsAConflict() {
+        SimpleTransactionStatus transaction = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate idempotency key"));
+
+        try {
+            idempotencyService.execute(KEY, "create", GuestDTO.class, () -> {
+                throw new AssertionError("A request claimed by another node must not run.");
+            });
+            Assert.fail("A key claimed by a running request must be rejected.");
+        } catch (AlreadyExistsEntityException expected) {
+            Assert.assertTrue(expected.getMessage().contains(KEY));
+        }
+        Assert.assertTrue(transaction.isRollbackOnly());
+    }
+
+    @Test
+    public void keyReusedForAnotherRequestIsRejected() {
+        idempotencyService.execute(KEY, "cancel:1", GuestDTO.class, () -> ResponseEntity.ok(new GuestDTO(1L, "Roger")));
+
+        try {
+            idempotencyService.execute(KEY, "cancel:2", GuestDTO.class, () -> ResponseEntity.ok(new GuestDTO(2L, "Rafael")));
+            Assert.fail("A key reused for another request must be rejected.");
+        } catch (IllegalArgumentException expected) {
+            Assert.assertTrue(expected.getMessage().contains(KEY));
+        }
+    }
+
+    @Test
+    public void storedResponseIsReplayedAfterRestart() {
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(eq(KEY), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(IdempotencyRecord.builder()
+                        .idempotencyKey(KEY)
+                        .scope("create")
+                        .statusCode(HttpStatus.CREATED.value())
+                        .location("/guests/1")
+                        .body("{\"id\":1,\"name\":\"Roger\"}")
+                        .expiresAt(NOW.plusHours(1))
+                        .build()));
+
+        ResponseEntity<GuestDTO> replayed = newService().execute(KEY, "create", GuestDTO.class, () -> {
+            throw new AssertionError("A stored request must not run again.");
+        });
+
+        Assert.assertEquals(HttpStatus.CREATED, replayed.getStatusCode());
+        Assert.assertEquals("/guests/1", replayed.getHeaders().getLocation().toString());
+        Assert.assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        Assert.assertEquals(new GuestDTO(1L, "Roger"), replayed.getBody());
+    }
+
+    private IdempotencyService newService() {
+        return new IdempotencyService(idempotencyRecordRepository, objectMapper, CLOCK, transactionManager, Duration.ofHours(24), 100);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.tenniscourts.outbox;
+
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.reservations.CreateReservationRequestDTO;
+import com.tenniscourts.reservations.NoShowSweptEvent;
+import com.tenniscourts.reservations.ReservationDTO;
+import com.tenniscourts.reservations.ReservationService;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OutboxRelayTest {
+
+    @Autowired
+    OutboxRelay outboxRelay;
+
+    @Autowired
+    InMemoryOutboxSink inMemoryOutboxSink;
+
+    @Autowired
+    OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    OutboxEventMapper outboxEventMapper;
+
+    @Autowired
+    ReservationOutboxListener reservationOutboxListener;
+
+    @Autowired
+    ReservationService reservationService;
+
+    @Autowired
+    TennisCourtRepository tennisCourtRepository;
+
+    @Autowired
+    ScheduleRepository scheduleRepository;
+
+    @Autowired
+    GuestRepository guestRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    Clock clock;
+
+    private TennisCourt tennisCourt;
+
+    private Long guestId;
+
+    @Before
+    public void setUp() {
+        // deliver what the other tests left in the outbox
+        outboxRelay.relay();
+        inMemoryOutboxSink.drain();
+
+        TennisCourt newTennisCourt = new TennisCourt();
+        newTennisCourt.setName("Outbox court");
+        tennisCourt = tennisCourtRepository.save(newTennisCourt);
+        guestId = guestRepository.save(Guest.builder().name("Outbox guest").build()).getId();
+    }
+
+    @Test
+    public void relayDeliversReservationEventsInOrder() {
+        Long cancelledId = book(schedule(1)).getId();
+        reservationService.cancelReservation(cancelledId);
+        Long rescheduledId = book(schedule(2)).getId();
+        Long bookedId = reservationService.rescheduleReservation(rescheduledId, schedule(3).getId()).getId();
+
+        outboxRelay.relay();
+
+        List<String> delivered = inMemoryOutboxSink.drain().stream()
+                .map(event -> event.getAggregateType() + " " + event.getAggregateId() + " " + event.getEventType())
+                .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList(
+                "Reservation " + cancelledId + " BOOKED",
+                "Reservation " + cancelledId + " CANCELLED",
+                "Reservation " + rescheduledId + " BOOKED",
+                "Reservation " + rescheduledId + " RESCHEDULED",
+                "Reservation " + bookedId + " BOOKED"), delivered);
+        Assert.assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    public void failedDeliveryLeavesTheEventsForTheNextRun() {
+        Long reservationId = book(schedule(1)).getId();
+        OutboxRelay failingRelay = new OutboxRelay(outboxEventRepository, outboxEventMapper, events -> {
+            throw new IllegalStateException("The sink is down.");
+        }, transactionManager, clock, new SimpleMeterRegistry(), 500);
+
+        failingRelay.relay();
+
+        Assert.assertEquals(1, outboxEventRepository.count());
+        outboxRelay.relay();
+        List<OutboxEventDTO> delivered = inMemoryOutboxSink.drain();
+        Assert.assertEquals(1, delivered.size());
+        Assert.assertEquals(reservationId, delivered.get(0).getAggregateId());
+    }
+
+    @Test
+    public void noShowSweepWritesAnEventPerReservation() {
+        reservationOutboxListener.onNoShowSwept(new NoShowSweptEvent(tennisCourt.getId(),
+                LocalDateTime.now(clock).toLocalDate(), Arrays.asList(11L, 12L), new BigDecimal("2.50")));
+
+        outboxRelay.relay();
+
+        List<OutboxEventDTO> delivered = inMemoryOutboxSink.drain();
+        Assert.assertEquals(Arrays.asList(11L, 12L),
+                delivered.stream().map(OutboxEventDTO::getAggregateId).collect(Collectors.toList()));
+        for (OutboxEventDTO event : delivered) {
+            Assert.assertEquals("Reservation", event.getAggregateType());
+            Assert.assertEquals("NO_SHOW", event.getEventType());
+            Assert.assertTrue(event.getPayload().contains("\"reservationId\":" + event.getAggregateId()));
+            Assert.assertTrue(event.getPayload().contains("\"refundValue\":2.50"));
+        }
+    }
+
+    private Schedule schedule(int days) {
+        LocalDateTime start = LocalDateTime.now(clock).plusDays(days).withNano(0);
+        return scheduleRepository.save(Schedule.builder()
+                .tennisCourt(tennisCourt)
+                .startDateTime(start)
+                .endDateTime(start.plusHours(1))
+                .build());
+    }
+
+    private ReservationDTO book(Schedule schedule) {
+        return reservationService.bookReservation(CreateReservationRequestDTO.builder()
+                .guestId(guestId)
+                .scheduleId(schedule.getId())
+                .build());
+    }
+}
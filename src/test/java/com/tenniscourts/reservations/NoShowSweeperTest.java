@@ -0,0 +1,149 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.audit.AuditAction;
+import com.tenniscourts.audit.AuditJournalReader;
+import com.tenniscourts.audit.AuditRecordDTO;
+import com.tenniscourts.config.persistence.JobWatermark;
+import com.tenniscourts.config.persistence.JobWatermarkRepository;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.rollups.CourtDailyRollup;
+import com.tenniscourts.rollups.CourtDailyRollupRepository;
+import com.tenniscourts.rollups.CourtDailyRollupService;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class NoShowSweeperTest {
+
+    @Autowired
+    NoShowSweeper noShowSweeper;
+
+    @Autowired
+    JobWatermarkRepository jobWatermarkRepository;
+
+    @Autowired
+    CourtDailyRollupRepository courtDailyRollupRepository;
+
+    @Autowired
+    CourtDailyRollupService courtDailyRollupService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TennisCourtRepository tennisCourtRepository;
+
+    @Autowired
+    ScheduleRepository scheduleRepository;
+
+    @Autowired
+    GuestRepository guestRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    @Autowired
+    AuditJournalReader auditJournalReader;
+
+    @Autowired
+    Clock clock;
+
+    private TransactionTemplate transactionTemplate;
+
+    private LocalDateTime start;
+
+    private Long tennisCourtId;
+
+    private Long reservationId;
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        start = LocalDateTime.now(clock).minusHours(3);
+        transactionTemplate.execute(status -> {
+            // the sweep that ran on startup already moved the watermark past the schedule below
+            JobWatermark jobWatermark = jobWatermarkRepository.findByName(NoShowSweeper.WATERMARK_NAME)
+                    .orElseGet(() -> JobWatermark.builder().name(NoShowSweeper.WATERMARK_NAME).build());
+            jobWatermark.setWatermark(start);
+            jobWatermarkRepository.save(jobWatermark);
+
+            TennisCourt tennisCourt = new TennisCourt();
+            tennisCourt.setName("No-show court");
+            tennisCourtId = tennisCourtRepository.save(tennisCourt).getId();
+            Schedule schedule = scheduleRepository.save(Schedule.builder()
+                    .tennisCourt(tennisCourt)
+                    .startDateTime(start)
+                    .endDateTime(start.plusHours(1))
+                    .build());
+            Guest guest = guestRepository.save(Guest.builder().name("No-show guest").build());
+            reservationId = reservationRepository.save(Reservation.builder()
+                    .guest(guest)
+                    .schedule(schedule)
+                    .value(BigDecimal.TEN)
+                    .reservationStatus(ReservationStatus.READY_TO_PLAY)
+                    .build()).getId();
+            return null;
+        });
+    }
+
+    @Test
+    public void sweepJournalsTheReservationsItMoved() throws Exception {
+        LocalDateTime sweptFrom = LocalDateTime.now(clock);
+        noShowSweeper.sweep();
+
+        // the journal is written asynchronously
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        List<AuditRecordDTO> updates;
+        do {
+            Thread.sleep(20);
+            updates = auditJournalReader.history("Reservation", reservationId, 0);
+            updates.removeIf(record -> record.getAction() != AuditAction.UPDATED || record.getDateTime().isBefore(sweptFrom));
+        } while (updates.isEmpty() && System.nanoTime() < deadline);
+        Assert.assertEquals(1, updates.size());
+    }
+
+    @Test
+    public void sweepMovesEndedReservationsToNoShowOnce() {
+        noShowSweeper.sweep();
+
+        Assert.assertEquals(ReservationStatus.NO_SHOW, reservationRepository.findById(reservationId).get().getReservationStatus());
+        Assert.assertFalse(jobWatermarkRepository.findByName(NoShowSweeper.WATERMARK_NAME).get().getWatermark().isBefore(start.plusHours(1)));
+        Assert.assertEquals(1, noShows());
+
+        // an instance that loaded the watermark before this sweep committed must not publish the window again
+        Assert.assertEquals(0, (int) transactionTemplate.execute(status -> noShowSweeper.sweepWindow(start, start.plusHours(2))));
+        Assert.assertEquals(1, noShows());
+    }
+
+    private long noShows() {
+        courtDailyRollupService.flush();
+        LocalDate day = start.toLocalDate();
+        List<CourtDailyRollup> rollups = courtDailyRollupRepository.findByTennisCourtIdAndRollupDateBetweenOrderByRollupDateAsc(tennisCourtId, day, day);
+        Assert.assertEquals(1, rollups.size());
+        return rollups.get(0).getNoShow();
+    }
+}
@@ -1,18 +1,40 @@
 package com.tenniscourts.reservations;
 
+import com.tenniscourts.exceptions.AlreadyExistsEntityException;
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
 import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.MethodSorters;
-import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 @SpringBootTest
@@ -20,17 +42,201 @@ import java.time.LocalDateTime;
 @ContextConfiguration(classes = ReservationService.class)
 public class ReservationServiceTest {
 
-    @InjectMocks
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 6, 1, 10, 0);
+
+    private static final Clock CLOCK = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    ReservationMapper reservationMapper;
+
+    @Mock
+    GuestRepository guestRepository;
+
+    @Mock
+    ScheduleRepository scheduleRepository;
+
+    @Mock
+    ScheduleOccupancyIndex scheduleOccupancyIndex;
+
+    @Mock
+    ApplicationEventPublisher applicationEventPublisher;
+
     ReservationService reservationService;
 
+    @Before
+    public void setUp() {
+        reservationService = new ReservationService(reservationRepository, reservationMapper, guestRepository,
+                scheduleRepository, scheduleOccupancyIndex, new TieredRefundPolicy(CLOCK), CLOCK, applicationEventPublisher);
+    }
+
+    @Test
+    public void bookReservationRejectsOccupiedSchedule() {
+        Schedule schedule = new Schedule();
+        schedule.setId(2L);
+        schedule.setStartDateTime(NOW.plusDays(2));
+
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(new Guest()));
+        when(scheduleRepository.findById(2L)).thenReturn(Optional.of(schedule));
+        when(scheduleOccupancyIndex.tryClaim(schedule)).thenReturn(false);
+
+        try {
+            reservationService.bookReservation(CreateReservationRequestDTO.builder().guestId(1L).scheduleId(2L).build());
+            Assert.fail("Booking an occupied schedule must fail.");
+        } catch (AlreadyExistsEntityException expected) {
+            verify(reservationRepository, never()).saveAndFlush(any());
+        }
+    }
+
+    @Test
+    public void bookReservationReportsAnActiveReservationOfTheScheduleAsBooked() {
+        when(reservationRepository.saveAndFlush(any())).thenThrow(integrityViolation(
+                "\"UK_RESERVATION_ACTIVE_SCHEDULE_INDEX_2 ON PUBLIC.RESERVATION(ACTIVE_SCHEDULE_ID) VALUES (2, 1)\""));
+
+        try {
+            bookFreeSchedule();
+            Assert.fail("Booking a schedule with an active reservation must fail.");
+        } catch (AlreadyExistsEntityException expected) {
+            Assert.assertEquals("Schedule with id 2 is already booked.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void bookReservationRethrowsOtherIntegrityViolations() {
+        DataIntegrityViolationException violation = integrityViolation("FK_RESERVATION_GUEST");
+        when(reservationRepository.saveAndFlush(any())).thenThrow(violation);
+
+        try {
+            bookFreeSchedule();
+            Assert.fail("Booking must fail.");
+        } catch (DataIntegrityViolationException expected) {
+            Assert.assertSame(violation, expected);
+        }
+    }
+
+    @Test
+    public void bookReservationsBooksNothingWhenOneScheduleIsTaken() {
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(4L);
+        Schedule free = new Schedule();
+        free.setId(2L);
+        free.setTennisCourt(tennisCourt);
+        free.setStartDateTime(NOW.plusDays(2));
+        Schedule taken = new Schedule();
+        taken.setId(3L);
+        taken.setTennisCourt(tennisCourt);
+        taken.setStartDateTime(NOW.plusDays(3));
+
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(new Guest()));
+        when(scheduleRepository.findAllById(Arrays.asList(2L, 3L))).thenReturn(Arrays.asList(free, taken));
+        when(scheduleOccupancyIndex.tryClaimAll(any())).thenReturn(Collections.singleton(3L));
+
+        BatchReservationDTO batch = reservationService.bookReservations(CreateBatchReservationRequestDTO.builder()
+                .guestId(1L)
+                .scheduleIds(Arrays.asList(2L, 3L))
+                .build());
+
+        Assert.assertFalse(batch.isBooked());
+        Assert.assertEquals(ReservationSlotStatus.NOT_BOOKED, batch.getSlots().get(0).getStatus());
+        Assert.assertEquals(ReservationSlotStatus.ALREADY_BOOKED, batch.getSlots().get(1).getStatus());
+        verify(reservationRepository, never()).saveAll(anyIterable());
+        verify(applicationEventPublisher, never()).publishEvent(any(ReservationEvent.class));
+    }
+
+    private void bookFreeSchedule() {
+        Schedule schedule = new Schedule();
+        schedule.setId(2L);
+        schedule.setStartDateTime(NOW.plusDays(2));
+
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(new Guest()));
+        when(scheduleRepository.findById(2L)).thenReturn(Optional.of(schedule));
+        when(scheduleOccupancyIndex.tryClaim(schedule)).thenReturn(true);
+
+        reservationService.bookReservation(CreateReservationRequestDTO.builder().guestId(1L).scheduleId(2L).build());
+    }
+
+    private static DataIntegrityViolationException integrityViolation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", new SQLException(), constraintName));
+    }
+
+    @Test
+    public void rescheduleReservationMovesGuestInOneFlush() {
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(4L);
+        Schedule previousSchedule = new Schedule();
+        previousSchedule.setId(2L);
+        previousSchedule.setTennisCourt(tennisCourt);
+        previousSchedule.setStartDateTime(NOW.plusHours(6));
+        Schedule schedule = new Schedule();
+        schedule.setId(3L);
+        schedule.setTennisCourt(tennisCourt);
+        schedule.setStartDateTime(NOW.plusDays(3));
+        Guest guest = new Guest();
+        Reservation previousReservation = Reservation.builder()
+                .guest(guest)
+                .schedule(previousSchedule)
+                .value(new BigDecimal("10.00"))
+                .reservationStatus(ReservationStatus.READY_TO_PLAY)
+                .build();
+
+        when(reservationRepository.findLockedById(1L)).thenReturn(Optional.of(previousReservation));
+        when(scheduleRepository.findLockedById(3L)).thenReturn(Optional.of(schedule));
+        when(scheduleOccupancyIndex.tryClaim(schedule)).thenReturn(true);
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(reservationMapper.map(any(Reservation.class))).thenAnswer(invocation -> new ReservationDTO());
+
+        reservationService.rescheduleReservation(1L, 3L);
+
+        Assert.assertEquals(ReservationStatus.RESCHEDULED, previousReservation.getReservationStatus());
+        Assert.assertEquals(new BigDecimal("5.00"), previousReservation.getRefundValue());
+        verify(scheduleOccupancyIndex).release(2L);
+        verify(reservationRepository).flush();
+        verify(applicationEventPublisher, times(2)).publishEvent(any(ReservationEvent.class));
+    }
+
     @Test
     public void getRefundValueFullRefund() {
         Schedule schedule = new Schedule();
 
-        LocalDateTime startDateTime = LocalDateTime.now().plusDays(2);
+        LocalDateTime startDateTime = NOW.plusDays(2);
+
+        schedule.setStartDateTime(startDateTime);
 
+        Assert.assertEquals(0, reservationService.getRefundValue(Reservation.builder().schedule(schedule).value(new BigDecimal(10L)).build()).compareTo(new BigDecimal(10)));
+    }
+
+    @Test
+    public void getRefundValueKeepsQuarterBetweenTwelveAndTwentyFourHours() {
+        assertRefund(NOW.plusHours(23).plusMinutes(59), "7.50");
+        assertRefund(NOW.plusHours(12), "7.50");
+    }
+
+    @Test
+    public void getRefundValueKeepsHalfBetweenTwoAndTwelveHours() {
+        assertRefund(NOW.plusHours(11).plusMinutes(59), "5.00");
+        assertRefund(NOW.plusHours(2), "5.00");
+    }
+
+    @Test
+    public void getRefundValueKeepsThreeQuartersUnderTwoHours() {
+        assertRefund(NOW.plusHours(1).plusMinutes(59), "2.50");
+        assertRefund(NOW.plusMinutes(1), "2.50");
+    }
+
+    @Test
+    public void getRefundValueKeepsEverythingOnceStarted() {
+        assertRefund(NOW, "0.00");
+        assertRefund(NOW.minusHours(1), "0.00");
+    }
+
+    private void assertRefund(LocalDateTime startDateTime, String expectedRefund) {
+        Schedule schedule = new Schedule();
         schedule.setStartDateTime(startDateTime);
 
-        Assert.assertEquals(reservationService.getRefundValue(Reservation.builder().schedule(schedule).value(new BigDecimal(10L)).build()), new BigDecimal(10));
+        Assert.assertEquals(new BigDecimal(expectedRefund),
+                reservationService.getRefundValue(Reservation.builder().schedule(schedule).value(new BigDecimal(10L)).build()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package com.tenniscourts.reservations;
+
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtLocks;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduleOccupancyIndexTest {
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    TennisCourtLocks tennisCourtLocks;
+
+    ScheduleOccupancyIndex scheduleOccupancyIndex;
+
+    @Before
+    public void setUp() {
+        tennisCourtLocks = new TennisCourtLocks();
+        scheduleOccupancyIndex = new ScheduleOccupancyIndex(reservationRepository, tennisCourtLocks);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void tryClaimAllClaimsNothingWhenOneScheduleIsOccupied() {
+        Schedule first = schedule(1L, 10L);
+        Schedule taken = schedule(2L, 10L);
+        Schedule last = schedule(3L, 20L);
+        when(reservationRepository.findReservedScheduleIds(anyCollection(), eq(ReservationStatus.READY_TO_PLAY)))
+                .thenReturn(new HashSet<>(Collections.singletonList(2L)));
+
+        Assert.assertEquals(Collections.singleton(2L), scheduleOccupancyIndex.tryClaimAll(Arrays.asList(first, taken, last)));
+
+        Assert.assertFalse(scheduleOccupancyIndex.isOccupied(1L));
+        Assert.assertTrue(scheduleOccupancyIndex.isOccupied(2L));
+        Assert.assertFalse(scheduleOccupancyIndex.isOccupied(3L));
+        Assert.assertFalse(((ReentrantLock) tennisCourtLocks.forCourt(10L)).isLocked());
+        Assert.assertFalse(((ReentrantLock) tennisCourtLocks.forCourt(20L)).isLocked());
+        Assert.assertTrue(scheduleOccupancyIndex.tryClaim(first));
+        Assert.assertTrue(scheduleOccupancyIndex.tryClaim(last));
+    }
+
+    @Test
+    public void tryClaimAllClaimsEveryScheduleWhenAllAreFree() {
+        Schedule first = schedule(1L, 10L);
+        Schedule last = schedule(3L, 20L);
+        when(reservationRepository.findReservedScheduleIds(anyCollection(), eq(ReservationStatus.READY_TO_PLAY)))
+                .thenReturn(Collections.emptySet());
+        TransactionSynchronizationManager.initSynchronization();
+
+        Assert.assertTrue(scheduleOccupancyIndex.tryClaimAll(Arrays.asList(first, last)).isEmpty());
+
+        Assert.assertFalse(scheduleOccupancyIndex.tryClaim(first));
+        Assert.assertFalse(scheduleOccupancyIndex.tryClaim(last));
+    }
+
+    @Test
+    public void tryClaimRechecksACommittedClaimWithTheDatabase() {
+        Schedule schedule = schedule(1L, 10L);
+        TransactionSynchronizationManager.initSynchronization();
+        Assert.assertTrue(scheduleOccupancyIndex.tryClaim(schedule));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // still booked, then cancelled by another node
+        when(reservationRepository.findReservedScheduleIds(anyCollection(), eq(ReservationStatus.READY_TO_PLAY)))
+                .thenReturn(Collections.singleton(1L), Collections.emptySet());
+
+        Assert.assertFalse(scheduleOccupancyIndex.tryClaim(schedule));
+        Assert.assertTrue(scheduleOccupancyIndex.tryClaim(schedule));
+    }
+
+    private static Schedule schedule(Long scheduleId, Long tennisCourtId) {
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(tennisCourtId);
+        Schedule schedule = new Schedule();
+        schedule.setId(scheduleId);
+        schedule.setTennisCourt(tennisCourt);
+        return schedule;
+    }
+}
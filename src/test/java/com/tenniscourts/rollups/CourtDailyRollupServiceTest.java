@@ -0,0 +1,188 @@
+package com.tenniscourts.rollups;
+
+import com.tenniscourts.guests.Guest;
+import com.tenniscourts.guests.GuestRepository;
+import com.tenniscourts.reservations.Reservation;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CourtDailyRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2032, 5, 4);
+
+    @Autowired
+    CourtDailyRollupService courtDailyRollupService;
+
+    @Autowired
+    CourtDailyRollupRepository courtDailyRollupRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TennisCourtRepository tennisCourtRepository;
+
+    @Autowired
+    ScheduleRepository scheduleRepository;
+
+    @Autowired
+    GuestRepository guestRepository;
+
+    @Autowired
+    ReservationRepository reservationRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Long tennisCourtId;
+
+    @Before
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        tennisCourtId = transactionTemplate.execute(status -> {
+            TennisCourt tennisCourt = new TennisCourt();
+            tennisCourt.setName("Rollup court");
+            return tennisCourtRepository.save(tennisCourt).getId();
+        });
+    }
+
+    @Test
+    public void incrementCreatesTheRowThenAddsToIt() {
+        transactionTemplate.execute(status -> {
+            courtDailyRollupService.increment(tennisCourtId, DAY, 1, 0, 0, 0, BigDecimal.TEN, BigDecimal.ZERO);
+            courtDailyRollupService.increment(tennisCourtId, DAY, 0, 1, 0, 0, BigDecimal.ZERO, new BigDecimal("7.50"));
+            return null;
+        });
+        courtDailyRollupService.flush();
+        courtDailyRollupService.increment(tennisCourtId, DAY, 1, 0, 0, 0, BigDecimal.TEN, BigDecimal.ZERO);
+        courtDailyRollupService.flush();
+
+        CourtDailyRollup rollup = rollup();
+        Assert.assertEquals(2, rollup.getBooked());
+        Assert.assertEquals(1, rollup.getCancelled());
+        Assert.assertEquals(0, new BigDecimal("20").compareTo(rollup.getDepositCollected()));
+        Assert.assertEquals(0, new BigDecimal("7.50").compareTo(rollup.getRefundsPaid()));
+    }
+
+    @Test
+    public void incrementIsOnlyAddedOnceItsTransactionCommitted() {
+        transactionTemplate.execute(status -> {
+            courtDailyRollupService.increment(tennisCourtId, DAY, 1, 0, 0, 0, BigDecimal.TEN, BigDecimal.ZERO);
+            courtDailyRollupService.flush();
+            Assert.assertTrue(rollups().isEmpty());
+            status.setRollbackOnly();
+            return null;
+        });
+        courtDailyRollupService.flush();
+
+        Assert.assertTrue(rollups().isEmpty());
+    }
+
+    @Test
+    public void rebuildCountsEveryReservationOfTheDay() {
+        transactionTemplate.execute(status -> {
+            TennisCourt tennisCourt = tennisCourtRepository.getOne(tennisCourtId);
+            Guest guest = guestRepository.save(Guest.builder().name("Rollup guest").build());
+            reserve(tennisCourt, guest, 8, ReservationStatus.READY_TO_PLAY);
+            reserve(tennisCourt, guest, 9, ReservationStatus.READY_TO_PLAY);
+            reserve(tennisCourt, guest, 10, ReservationStatus.CANCELLED);
+            // pending when the rebuild starts, which replaces it
+            courtDailyRollupService.increment(tennisCourtId, DAY, 7, 0, 0, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+            return null;
+        });
+
+        Assert.assertTrue(courtDailyRollupService.rebuild() > 0);
+        courtDailyRollupService.flush();
+
+        CourtDailyRollup rollup = rollup();
+        Assert.assertEquals(3, rollup.getBooked());
+        Assert.assertEquals(1, rollup.getCancelled());
+        Assert.assertEquals(0, rollup.getNoShow());
+    }
+
+    @Test
+    public void changesCommittedDuringARebuildAreFlushedAfterIt() throws Exception {
+        CountDownLatch rebuilt = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(() -> transactionTemplate.execute(status -> {
+            courtDailyRollupService.rebuild();
+            rebuilt.countDown();
+            await(commit);
+            return null;
+        }));
+        await(rebuilt);
+
+        transactionTemplate.execute(status -> {
+            courtDailyRollupService.increment(tennisCourtId, DAY, 1, 0, 0, 0, BigDecimal.TEN, BigDecimal.ZERO);
+            return null;
+        });
+        courtDailyRollupService.flush();
+        Assert.assertTrue(rollups().isEmpty());
+
+        commit.countDown();
+        rebuild.get(10, TimeUnit.SECONDS);
+        courtDailyRollupService.flush();
+        Assert.assertEquals(1, rollup().getBooked());
+    }
+
+    private void reserve(TennisCourt tennisCourt, Guest guest, int hour, ReservationStatus reservationStatus) {
+        LocalDateTime startDateTime = DAY.atTime(hour, 0);
+        Schedule schedule = scheduleRepository.save(Schedule.builder()
+                .tennisCourt(tennisCourt)
+                .startDateTime(startDateTime)
+                .endDateTime(startDateTime.plusHours(1))
+                .build());
+        reservationRepository.save(Reservation.builder()
+                .guest(guest)
+                .schedule(schedule)
+                .value(BigDecimal.TEN)
+                .reservationStatus(reservationStatus)
+                .build());
+    }
+
+    private CourtDailyRollup rollup() {
+        List<CourtDailyRollup> rollups = rollups();
+        Assert.assertEquals(1, rollups.size());
+        return rollups.get(0);
+    }
+
+    private List<CourtDailyRollup> rollups() {
+        return courtDailyRollupRepository.findByTennisCourtIdAndRollupDateBetweenOrderByRollupDateAsc(tennisCourtId, DAY, DAY);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.exceptions.EntityNotFoundException;
+import com.tenniscourts.reservations.ReservationEvent;
+import com.tenniscourts.reservations.ReservationEventType;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.tenniscourts.TennisCourtLocks;
+import com.tenniscourts.tenniscourts.TennisCourtRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduleAvailabilityIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 6, 1, 10, 0);
+
+    private static final Clock CLOCK = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    private static final Long TENNIS_COURT_ID = 7L;
+
+    @Mock
+    ScheduleRepository scheduleRepository;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    @Mock
+    TennisCourtRepository tennisCourtRepository;
+
+    ScheduleAvailabilityIndex scheduleAvailabilityIndex;
+
+    @Before
+    public void setUp() {
+        scheduleAvailabilityIndex = new ScheduleAvailabilityIndex(scheduleRepository, reservationRepository,
+                tennisCourtRepository, new TennisCourtLocks(), CLOCK);
+    }
+
+    @Test
+    public void findFreeSlotsLoadsACourtOnce() {
+        givenCourt();
+
+        Assert.assertEquals(Arrays.asList(1L, 3L), freeScheduleIds(NOW.minusHours(1), NOW.plusDays(1)));
+        Assert.assertEquals(Collections.singletonList(3L), freeScheduleIds(NOW.plusHours(2), NOW.plusDays(1)));
+
+        verify(scheduleRepository, times(1)).findSlotsByTennisCourt(eq(TENNIS_COURT_ID), any());
+        verify(reservationRepository, times(1)).findReservedScheduleIdsByTennisCourt(eq(TENNIS_COURT_ID), any(), eq(ReservationStatus.READY_TO_PLAY));
+    }
+
+    @Test
+    public void committedChangesUpdateALoadedCourt() {
+        givenCourt();
+        freeScheduleIds(NOW, NOW.plusDays(1));
+
+        scheduleAvailabilityIndex.onReservationEvent(reservationEvent(ReservationEventType.BOOKED, 3L, NOW.plusHours(3)));
+        scheduleAvailabilityIndex.onReservationEvent(reservationEvent(ReservationEventType.CANCELLED, 2L, NOW.plusHours(2)));
+        scheduleAvailabilityIndex.onScheduleCreated(new ScheduleCreatedEvent(4L, TENNIS_COURT_ID, NOW.plusHours(4), NOW.plusHours(5)));
+
+        Assert.assertEquals(Arrays.asList(1L, 2L, 4L), freeScheduleIds(NOW, NOW.plusDays(1)));
+    }
+
+    @Test
+    public void slotsThatStartedAreNeverFree() {
+        givenCourt();
+
+        Assert.assertEquals(Arrays.asList(1L, 3L), freeScheduleIds(NOW.minusDays(1), NOW.plusDays(1)));
+        Assert.assertTrue(freeScheduleIds(NOW.minusDays(1), NOW.minusMinutes(1)).isEmpty());
+    }
+
+    @Test
+    public void unknownCourtIsNotKept() {
+        when(scheduleRepository.findSlotsByTennisCourt(eq(TENNIS_COURT_ID), any())).thenReturn(Collections.emptyList());
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                freeScheduleIds(NOW, NOW.plusDays(1));
+                Assert.fail("An unknown court must not be found.");
+            } catch (EntityNotFoundException expected) {
+                // the next lookup asks the database again
+            }
+        }
+        verify(tennisCourtRepository, times(2)).existsById(TENNIS_COURT_ID);
+    }
+
+    private void givenCourt() {
+        when(scheduleRepository.findSlotsByTennisCourt(eq(TENNIS_COURT_ID), any())).thenReturn(Arrays.asList(
+                new Object[]{0L, NOW.minusHours(1), NOW},
+                new Object[]{1L, NOW.plusHours(1), NOW.plusHours(2)},
+                new Object[]{2L, NOW.plusHours(2), NOW.plusHours(3)},
+                new Object[]{3L, NOW.plusHours(3), NOW.plusHours(4)}));
+        when(reservationRepository.findReservedScheduleIdsByTennisCourt(eq(TENNIS_COURT_ID), any(), eq(ReservationStatus.READY_TO_PLAY)))
+                .thenReturn(new HashSet<>(Collections.singletonList(2L)));
+    }
+
+    private List<Long> freeScheduleIds(LocalDateTime from, LocalDateTime to) {
+        return scheduleAvailabilityIndex.findFreeSlots(Collections.singletonList(TENNIS_COURT_ID), from, to).stream()
+                .map(FreeSlotDTO::getScheduleId)
+                .collect(Collectors.toList());
+    }
+
+    private static ReservationEvent reservationEvent(ReservationEventType type, Long scheduleId, LocalDateTime startDateTime) {
+        return new ReservationEvent(type, 1L, 1L, scheduleId, TENNIS_COURT_ID, startDateTime, BigDecimal.TEN, null);
+    }
+}
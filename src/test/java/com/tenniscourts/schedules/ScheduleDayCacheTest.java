@@ -0,0 +1,102 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.reservations.ReservationEvent;
+import com.tenniscourts.reservations.ReservationEventType;
+import com.tenniscourts.reservations.ReservationRepository;
+import com.tenniscourts.reservations.ReservationStatus;
+import com.tenniscourts.tenniscourts.TennisCourt;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduleDayCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 10);
+
+    private static final Long TENNIS_COURT_ID = 7L;
+
+    private static final Long SCHEDULE_ID = 3L;
+
+    @Mock
+    ScheduleRepository scheduleRepository;
+
+    @Mock
+    ReservationRepository reservationRepository;
+
+    ScheduleDayCache scheduleDayCache;
+
+    @Before
+    public void setUp() {
+        scheduleDayCache = new ScheduleDayCache(scheduleRepository, reservationRepository,
+                Mappers.getMapper(ScheduleMapper.class), new SimpleMeterRegistry(), Duration.ofMinutes(10), 100);
+
+        TennisCourt tennisCourt = new TennisCourt();
+        tennisCourt.setId(TENNIS_COURT_ID);
+        tennisCourt.setName("Court");
+        Schedule schedule = Schedule.builder()
+                .tennisCourt(tennisCourt)
+                .startDateTime(DAY.atTime(8, 0))
+                .endDateTime(DAY.atTime(9, 0))
+                .build();
+        schedule.setId(SCHEDULE_ID);
+        when(scheduleRepository.findByTennisCourt_IdAndStartDateTimeGreaterThanEqualAndStartDateTimeLessThan(
+                eq(TENNIS_COURT_ID), eq(DAY.atStartOfDay()), eq(DAY.plusDays(1).atStartOfDay()), any()))
+                .thenReturn(Collections.singletonList(schedule));
+        when(reservationRepository.findReservedScheduleIds(Collections.singletonList(SCHEDULE_ID), ReservationStatus.READY_TO_PLAY))
+                .thenReturn(new HashSet<>());
+    }
+
+    @Test
+    public void dayIsLoadedOnceAndHandedOutAsCopies() {
+        List<ScheduleDTO> first = scheduleDayCache.findByDay(DAY, TENNIS_COURT_ID);
+        first.get(0).setBooked(true);
+        first.get(0).getTennisCourt().setName("Changed by a caller");
+
+        List<ScheduleDTO> second = scheduleDayCache.findByDay(DAY, TENNIS_COURT_ID);
+
+        Assert.assertNotSame(first.get(0), second.get(0));
+        Assert.assertFalse(second.get(0).getBooked());
+        Assert.assertEquals("Court", second.get(0).getTennisCourt().getName());
+        verify(scheduleRepository, times(1)).findByTennisCourt_IdAndStartDateTimeGreaterThanEqualAndStartDateTimeLessThan(
+                eq(TENNIS_COURT_ID), any(), any(), any());
+    }
+
+    @Test
+    public void reservationOfTheDayInvalidatesIt() {
+        Assert.assertFalse(scheduleDayCache.findByDay(DAY, TENNIS_COURT_ID).get(0).getBooked());
+
+        when(reservationRepository.findReservedScheduleIds(Collections.singletonList(SCHEDULE_ID), ReservationStatus.READY_TO_PLAY))
+                .thenReturn(new HashSet<>(Collections.singletonList(SCHEDULE_ID)));
+        scheduleDayCache.onReservationEvent(reservationEvent(DAY.plusDays(1).atTime(8, 0)));
+        Assert.assertFalse(scheduleDayCache.findByDay(DAY, TENNIS_COURT_ID).get(0).getBooked());
+
+        scheduleDayCache.onReservationEvent(reservationEvent(DAY.atTime(8, 0)));
+        Assert.assertTrue(scheduleDayCache.findByDay(DAY, TENNIS_COURT_ID).get(0).getBooked());
+        verify(scheduleRepository, times(2)).findByTennisCourt_IdAndStartDateTimeGreaterThanEqualAndStartDateTimeLessThan(
+                eq(TENNIS_COURT_ID), any(), any(), any());
+    }
+
+    private static ReservationEvent reservationEvent(LocalDateTime startDateTime) {
+        return new ReservationEvent(ReservationEventType.BOOKED, 1L, 1L, SCHEDULE_ID, TENNIS_COURT_ID, startDateTime, BigDecimal.TEN, null);
+    }
+}
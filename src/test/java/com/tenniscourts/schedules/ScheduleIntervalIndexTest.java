@@ -0,0 +1,133 @@
+package com.tenniscourts.schedules;
+
+import com.tenniscourts.schedules.ScheduleIntervalIndex.Claim;
+import com.tenniscourts.tenniscourts.TennisCourtLocks;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduleIntervalIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 10, 8, 0);
+
+    private static final Long TENNIS_COURT_ID = 7L;
+
+    @Mock
+    ScheduleRepository scheduleRepository;
+
+    @Mock
+    Clock clock;
+
+    ScheduleIntervalIndex scheduleIntervalIndex;
+
+    @Before
+    public void setUp() {
+        scheduleIntervalIndex = new ScheduleIntervalIndex(scheduleRepository, new TennisCourtLocks(), clock);
+        setNow(START.minusHours(2));
+        when(scheduleRepository.findIntervalsByTennisCourt(eq(TENNIS_COURT_ID), any(LocalDateTime.class)))
+                .thenReturn(Collections.singletonList(new Object[]{START, START.plusHours(1)}));
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void tryClaimTellsDuplicatesFromOverlaps() {
+        Assert.assertEquals(Claim.DUPLICATE, claim(START, START.plusHours(1)));
+        Assert.assertEquals(Claim.OVERLAPPING, claim(START.minusMinutes(30), START.plusMinutes(30)));
+        Assert.assertEquals(Claim.OVERLAPPING, claim(START.plusMinutes(59), START.plusHours(2)));
+        Assert.assertEquals(Claim.CLAIMED, claim(START.plusHours(1), START.plusHours(2)));
+        Assert.assertEquals(Claim.CLAIMED, claim(START.minusHours(1), START));
+        Assert.assertEquals(Claim.DUPLICATE, claim(START.plusHours(1), START.plusHours(2)));
+
+        verify(scheduleRepository, times(1)).findIntervalsByTennisCourt(TENNIS_COURT_ID, START.minusHours(4));
+    }
+
+    @Test
+    public void claimIsUndoneWhenTheTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        Assert.assertEquals(Claim.CLAIMED, claim(START.plusHours(1), START.plusHours(2)));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        TransactionSynchronizationManager.initSynchronization();
+        Assert.assertEquals(Claim.CLAIMED, claim(START.plusHours(1), START.plusHours(2)));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        Assert.assertEquals(Claim.DUPLICATE, claim(START.plusHours(1), START.plusHours(2)));
+    }
+
+    @Test
+    public void forgottenCourtIsReloaded() {
+        claim(START.plusHours(1), START.plusHours(2));
+
+        scheduleIntervalIndex.forget(TENNIS_COURT_ID);
+
+        Assert.assertEquals(Claim.CLAIMED, claim(START.plusHours(1), START.plusHours(2)));
+        verify(scheduleRepository, times(2)).findIntervalsByTennisCourt(TENNIS_COURT_ID, START.minusHours(4));
+    }
+
+    @Test
+    public void prunePastDropsTheIntervalsEndedMoreThanAnHourAgo() {
+        claim(START.plusHours(1), START.plusHours(2));
+
+        setNow(START.plusMinutes(150));
+        scheduleIntervalIndex.prunePast();
+
+        Assert.assertEquals(1, scheduleIntervalIndex.intervalCount(TENNIS_COURT_ID));
+        Assert.assertEquals(Claim.OVERLAPPING, claim(START.plusMinutes(90), START.plusMinutes(150)));
+    }
+
+    @Test
+    public void slotStartingBeforeTheKeptIntervalsIsCheckedInTheDatabase() {
+        Schedule schedule = new Schedule();
+        schedule.setStartDateTime(START.minusDays(1));
+        schedule.setEndDateTime(START.minusDays(1).plusHours(1));
+        when(scheduleRepository.findOverlappingByTennisCourt(TENNIS_COURT_ID, START.minusDays(1).minusHours(1),
+                START.minusDays(1), START.minusDays(1).plusHours(1), PageRequest.of(0, 1)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(schedule)));
+
+        Assert.assertEquals(Claim.DUPLICATE, claim(START.minusDays(1), START.minusDays(1).plusHours(1)));
+        Assert.assertEquals(0, scheduleIntervalIndex.intervalCount(TENNIS_COURT_ID));
+    }
+
+    private void setNow(LocalDateTime now) {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(now.toInstant(ZoneOffset.UTC));
+    }
+
+    private Claim claim(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return scheduleIntervalIndex.tryClaim(TENNIS_COURT_ID, startDateTime, endDateTime);
+    }
+
+    private static void complete(int status) {
+        try {
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
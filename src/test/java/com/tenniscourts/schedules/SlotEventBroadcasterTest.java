@@ -0,0 +1,143 @@
+package com.tenniscourts.schedules;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class SlotEventBroadcasterTest {
+
+    private static final Long TENNIS_COURT_ID = 9001L;
+
+    private static final LocalDateTime START = LocalDateTime.of(2033, 2, 1, 8, 0);
+
+    private static final int EVENTS = 50;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    SlotEventBroadcaster slotEventBroadcaster;
+
+    @Test
+    public void everySubscriberOfACourtGetsItsEventsInOrder() throws Exception {
+        List<MvcResult> subscribers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            subscribers.add(subscribe("/api/v1/schedules/events?tennisCourtId=" + TENNIS_COURT_ID));
+        }
+        MvcResult otherDay = subscribe("/api/v1/schedules/events?tennisCourtId=" + TENNIS_COURT_ID + "&date=" + START.toLocalDate().plusDays(1));
+        MvcResult otherCourt = subscribe("/api/v1/schedules/events?tennisCourtId=" + (TENNIS_COURT_ID + 1));
+
+        for (long scheduleId = 1; scheduleId <= EVENTS; scheduleId++) {
+            slotEventBroadcaster.onScheduleCreated(new ScheduleCreatedEvent(scheduleId, TENNIS_COURT_ID, START, START.plusHours(1)));
+        }
+
+        for (MvcResult subscriber : subscribers) {
+            String content = awaitContent(subscriber, "\"scheduleId\":" + EVENTS + ",");
+            int previous = -1;
+            for (long scheduleId = 1; scheduleId <= EVENTS; scheduleId++) {
+                int position = content.indexOf("\"scheduleId\":" + scheduleId + ",");
+                Assert.assertTrue("Schedule " + scheduleId + " out of order in " + content, position > previous);
+                previous = position;
+            }
+        }
+        Assert.assertFalse(otherDay.getResponse().getContentAsString().contains("scheduleId"));
+        Assert.assertFalse(otherCourt.getResponse().getContentAsString().contains("scheduleId"));
+    }
+
+    @Test
+    public void aStalledSubscriberDoesNotHoldTheOnlySender() throws Exception {
+        SlotEventBroadcaster broadcaster = new SlotEventBroadcaster(new SimpleMeterRegistry(), 16,
+                Duration.ofMinutes(1), 1, Duration.ofMillis(50));
+        try {
+            CountDownLatch sendStarted = new CountDownLatch(1);
+            CountDownLatch stalledWrite = new CountDownLatch(1);
+            broadcaster.subscribe(new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) {
+                    sendStarted.countDown();
+                    try {
+                        stalledWrite.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, TENNIS_COURT_ID, null);
+            List<SseEmitter.SseEventBuilder> sent = new CopyOnWriteArrayList<>();
+            broadcaster.subscribe(new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) throws IOException {
+                    sent.add(builder);
+                }
+            }, TENNIS_COURT_ID + 1, null);
+
+            broadcaster.onScheduleCreated(new ScheduleCreatedEvent(1L, TENNIS_COURT_ID, START, START.plusHours(1)));
+            Assert.assertTrue(sendStarted.await(10, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            broadcaster.heartbeat();
+            Assert.assertEquals(2, broadcaster.senderCount());
+
+            broadcaster.onScheduleCreated(new ScheduleCreatedEvent(2L, TENNIS_COURT_ID + 1, START, START.plusHours(1)));
+            awaitSize(sent, 2);
+
+            stalledWrite.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (broadcaster.senderCount() != 1 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            Assert.assertEquals(1, broadcaster.senderCount());
+        } finally {
+            broadcaster.shutdown();
+        }
+    }
+
+    private MvcResult subscribe(String url) throws Exception {
+        return mockMvc.perform(get(url))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (list.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(size, list.size());
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            content = result.getResponse().getContentAsString();
+        }
+        Assert.assertTrue("Missing " + expected + " in " + content, content.contains(expected));
+        return content;
+    }
+}
@@ -0,0 +1,85 @@
+package com.tenniscourts.tenniscourts;
+
+import com.tenniscourts.schedules.Schedule;
+import com.tenniscourts.schedules.ScheduleRepository;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TennisCourtControllerTest {
+
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2032, 5, 3, 8, 0, 30);
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TennisCourtRepository tennisCourtRepository;
+
+    @Autowired
+    ScheduleRepository scheduleRepository;
+
+    private Long tennisCourtId;
+
+    private List<Integer> scheduleIds;
+
+    @Before
+    public void setUp() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            TennisCourt tennisCourt = new TennisCourt();
+            tennisCourt.setName("Paged court");
+            tennisCourtId = tennisCourtRepository.save(tennisCourt).getId();
+
+            scheduleIds = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                scheduleIds.add(Math.toIntExact(scheduleRepository.save(Schedule.builder()
+                        .tennisCourt(tennisCourt)
+                        .startDateTime(FIRST_START.plusHours(i))
+                        .endDateTime(FIRST_START.plusHours(i + 1))
+                        .build()).getId()));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void nextSchedulesFromDoesNotRepeatASchedule() throws Exception {
+        String url = "/api/v1/courts/" + tennisCourtId + "/schedules?size=1&from=";
+
+        mockMvc.perform(get(url + FIRST_START.minusMinutes(1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tennisCourtSchedules[*].id", contains(scheduleIds.get(0))))
+                .andExpect(jsonPath("$.nextSchedulesFrom").value(FIRST_START.toString()));
+
+        mockMvc.perform(get(url + FIRST_START))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tennisCourtSchedules[*].id", contains(scheduleIds.get(1))))
+                .andExpect(jsonPath("$.tennisCourtSchedules", hasSize(1)));
+    }
+}